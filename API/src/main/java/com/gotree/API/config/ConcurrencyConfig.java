@@ -0,0 +1,66 @@
+package com.gotree.API.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executores usados para paralelizar consultas de leitura, gerar PDFs em segundo plano,
+ * processar as fotos das visitas e coordenar a re-renderização em lote.
+ * Também habilita as tarefas agendadas (ex: varredura de PDFs de AEP pendentes).
+ */
+@Configuration
+@EnableScheduling
+public class ConcurrencyConfig {
+
+	/**
+	 * Uma virtual thread por tarefa: as consultas passam a maior parte do tempo esperando o banco,
+	 * então não faz sentido limitar por threads. O limite real de concorrência (conexões do Hikari)
+	 * é aplicado pelo QueryFanOutService.
+	 */
+	@Bean(destroyMethod = "close")
+	ExecutorService queryFanOutExecutor() {
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("query-fanout-", 0).factory());
+	}
+
+	/**
+	 * Renderização de PDF é CPU e memória (layout do Flying Saucer), então aqui o limite é de threads:
+	 * poucas threads de plataforma e uma fila limitada. Ao desligar, os PDFs já aceitos são concluídos.
+	 */
+	@Bean(destroyMethod = "close")
+	ExecutorService pdfRenderExecutor(@Value("${app.pdf-render.threads:2}") int threads,
+									  @Value("${app.pdf-render.queue-capacity:100}") int queueCapacity) {
+		return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueCapacity),
+				Thread.ofPlatform().name("pdf-render-", 0).factory());
+	}
+
+	/**
+	 * Redução/recompressão das fotos dos achados: CPU e memória (a foto decodificada ocupa dezenas de MB),
+	 * então uma thread por núcleo. Com a fila cheia, a própria requisição processa a foto.
+	 */
+	@Bean(destroyMethod = "close")
+	ExecutorService imageProcessingExecutor(@Value("${app.visit-photos.threads:0}") int threads) {
+		int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+		return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(poolSize * 4),
+				Thread.ofPlatform().name("image-processing-", 0).factory(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+	}
+
+	/**
+	 * Coordenação dos jobs de re-renderização em lote: um job por vez (cada job cria seus próprios
+	 * workers com o paralelismo pedido; a geração em si continua limitada pelo controle de admissão).
+	 */
+	@Bean(destroyMethod = "close")
+	ExecutorService rerenderJobExecutor() {
+		return Executors.newSingleThreadExecutor(Thread.ofPlatform().name("rerender-job-", 0).factory());
+	}
+}
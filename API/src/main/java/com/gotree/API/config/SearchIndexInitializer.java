@@ -0,0 +1,49 @@
+package com.gotree.API.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cria, se ainda não existirem, a extensão pg_trgm e os índices GIN usados pela busca de documentos.
+ * O Hibernate não gera índices de expressão (to_tsvector) nem com operator class (gin_trgm_ops),
+ * por isso eles são criados aqui com "IF NOT EXISTS" a cada subida.
+ * Roda antes dos seeders para que a reconstrução do índice já encontre a estrutura pronta.
+ */
+@Component
+@Order(0)
+public class SearchIndexInitializer implements ApplicationRunner {
+
+	private static final Logger logger = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+	private static final String[] STATEMENTS = {
+			"CREATE EXTENSION IF NOT EXISTS pg_trgm",
+			"CREATE INDEX IF NOT EXISTS idx_document_index_search_fts ON tb_document_index " +
+					"USING GIN (to_tsvector('portuguese', search_text))",
+			"CREATE INDEX IF NOT EXISTS idx_document_index_search_trgm ON tb_document_index " +
+					"USING GIN (search_text gin_trgm_ops)"
+	};
+
+	private final JdbcTemplate jdbcTemplate;
+
+	public SearchIndexInitializer(JdbcTemplate jdbcTemplate) {
+		this.jdbcTemplate = jdbcTemplate;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		for (String statement : STATEMENTS) {
+			try {
+				jdbcTemplate.execute(statement);
+			} catch (Exception e) {
+				// Ex.: usuário do banco sem permissão para criar a extensão. A aplicação sobe normalmente,
+				// mas a busca textual depende desses objetos e precisa que o DBA os crie.
+				logger.warn("Não foi possível executar '{}': {}", statement, e.getMessage());
+			}
+		}
+	}
+}
@@ -61,6 +61,8 @@ public class SecurityConfig {
 						.requestMatchers("/auth/login").permitAll()            // Libera o endpoint de login
 						.requestMatchers("/client-portal/login").permitAll() //Login do cliente
 						.requestMatchers("/client-portal/first-access/**").permitAll() //Solicita o código / Cria a senha
+						.requestMatchers("/actuator/health", "/actuator/health/**").authenticated()
+						.requestMatchers("/actuator/**").hasRole("ADMIN")           // Métricas internas: só administradores
 						.anyRequest().authenticated()                             // Exige autenticação para todas as outras requisições
 				)
 				.exceptionHandling(exception -> exception
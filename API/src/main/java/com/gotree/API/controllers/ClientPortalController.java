@@ -5,18 +5,26 @@ import com.gotree.API.dto.auth.AuthenticationResponseDTO;
 import com.gotree.API.dto.client.ClientFirstAccessRequestDTO;
 import com.gotree.API.dto.client.ClientLoginDTO;
 import com.gotree.API.dto.client.ClientSetupPasswordDTO;
+import com.gotree.API.dto.document.FileDownloadDTO;
 import com.gotree.API.entities.AgendaEvent;
 import com.gotree.API.exceptions.ResourceNotFoundException;
 import com.gotree.API.repositories.ClientRepository;
 import com.gotree.API.services.ClientPortalService;
+import com.gotree.API.services.DocumentAggregationService;
 import com.gotree.API.services.JwtService;
+import com.gotree.API.utils.PdfDownloadResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -27,13 +35,16 @@ public class ClientPortalController {
     private final AuthenticationManager authenticationManager;
     private final JwtService jwtService;
     private final ClientRepository clientRepository;
+    private final DocumentAggregationService documentAggregationService;
 
     public ClientPortalController(ClientPortalService clientPortalService, AuthenticationManager authenticationManager,
-                                  JwtService jwtService, ClientRepository clientRepository) {
+                                  JwtService jwtService, ClientRepository clientRepository,
+                                  DocumentAggregationService documentAggregationService) {
         this.clientPortalService = clientPortalService;
         this.authenticationManager = authenticationManager;
         this.jwtService = jwtService;
         this.clientRepository = clientRepository;
+        this.documentAggregationService = documentAggregationService;
     }
 
     /**
@@ -68,6 +79,19 @@ public class ClientPortalController {
         return ResponseEntity.ok(events);
     }
 
+    /**
+     * Download de um documento enviado ao cliente logado (mesma resposta do download interno:
+     * ETag/Last-Modified para revalidação e Range para retomar downloads interrompidos).
+     */
+    @GetMapping("/documents/{type}/{id}/pdf")
+    @PreAuthorize("hasRole('CLIENT')")
+    public ResponseEntity<Resource> downloadDocumentPdf(@PathVariable String type, @PathVariable Long id,
+                                                        Authentication authentication,
+                                                        HttpServletRequest request, HttpServletResponse response) throws IOException {
+        FileDownloadDTO fileDto = documentAggregationService.downloadClientDocument(type, id, authentication.getName());
+        return PdfDownloadResponses.of(fileDto, request, response);
+    }
+
     /**
      * Enpoint para login do cliente ao portal
      */
@@ -1,12 +1,19 @@
 package com.gotree.API.controllers;
 
 import com.gotree.API.config.security.CustomUserDetails;
+import com.gotree.API.dto.document.DocumentCursorPageDTO;
 import com.gotree.API.dto.document.DocumentSummaryDTO;
 import com.gotree.API.dto.document.FileDownloadDTO;
 import com.gotree.API.entities.User;
 import com.gotree.API.services.DocumentAggregationService;
+import com.gotree.API.services.DocumentExportService;
+import com.gotree.API.services.DocumentIndexService;
+import com.gotree.API.utils.PdfDownloadResponses;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -19,13 +26,16 @@ import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST responsável por gerenciar documentos relacionados a visitas técnicas.
@@ -39,10 +49,16 @@ public class DocumentController {
 
 
     private final DocumentAggregationService documentAggregationService;
+    private final DocumentIndexService documentIndexService;
+    private final DocumentExportService documentExportService;
     private static final Logger logger = LoggerFactory.getLogger(DocumentController.class);
 
-    public DocumentController(DocumentAggregationService documentAggregationService) {
+    public DocumentController(DocumentAggregationService documentAggregationService,
+                              DocumentIndexService documentIndexService,
+                              DocumentExportService documentExportService) {
         this.documentAggregationService = documentAggregationService;
+        this.documentIndexService = documentIndexService;
+        this.documentExportService = documentExportService;
     }
 
     /**
@@ -77,6 +93,59 @@ public class DocumentController {
         return ResponseEntity.ok(documentsPage);
     }
 
+    /**
+     * Modo cursor da listagem do usuário autenticado (rolagem infinita).
+     * Ativado pela presença do parâmetro "after": vazio na primeira página e, nas seguintes,
+     * o valor de "nextCursor" da resposta anterior. O total só é calculado com includeTotal=true.
+     *
+     * @param after        Token opaco retornado em nextCursor (vazio = primeira página)
+     * @param size         Quantidade de documentos por página (máx. 100)
+     * @param includeTotal Se true, calcula também o total de documentos do filtro
+     * @return ResponseEntity com a página de documentos e o cursor da próxima
+     */
+    @GetMapping(params = "after")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<DocumentCursorPageDTO> getMyDocumentsAfter(
+            Authentication authentication,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String clientName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        User technician = userDetails.user();
+
+        DocumentCursorPageDTO page = documentAggregationService.findDocumentsForUserAfter(
+                technician, type, clientName, startDate, endDate, after, size, includeTotal
+        );
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Busca textual nos documentos do usuário autenticado, ordenada por relevância.
+     * Insensível a acentos e maiúsculas; aceita termos parciais ou com pequenos erros de digitação.
+     * Ex: GET /documents/search?q=extintor ausente&page=0&size=20
+     *
+     * @param q        Termo buscado (mínimo de 2 caracteres)
+     * @param pageable Página e tamanho (a ordenação é sempre por relevância)
+     * @return ResponseEntity com uma Página (Page) de DocumentSummaryDTO
+     */
+    @GetMapping("/search")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<Page<DocumentSummaryDTO>> searchMyDocuments(
+            Authentication authentication,
+            @RequestParam String q,
+            Pageable pageable
+    ) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        User technician = userDetails.user();
+
+        return ResponseEntity.ok(documentAggregationService.searchDocumentsForUser(technician, q, pageable));
+    }
+
     /**
      * Retorna os documentos mais recentes do usuário autenticado.
      * Este endpoint é utilizado no dashboard para exibir um histórico resumido
@@ -108,20 +177,18 @@ public class DocumentController {
      */
     @GetMapping("/{type}/{id}/pdf")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<byte[]> downloadDocumentPdf(@PathVariable String type, @PathVariable Long id, Authentication authentication) {
+    public ResponseEntity<Resource> downloadDocumentPdf(@PathVariable String type, @PathVariable Long id, Authentication authentication,
+                                                        HttpServletRequest request, HttpServletResponse response) {
 
         try {
             CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
             User currentUser = userDetails.user();
 
-            // 1. Chama o novo metodo que retorna o DTO (Nome + Bytes)
+            // 1. Chama o novo metodo que retorna o DTO (Nome + Arquivo em disco)
             FileDownloadDTO fileDto = documentAggregationService.downloadDocument(type, id, currentUser);
 
-            // 2. Retorna com o cabeçalho Content-Disposition configurado com o nome correto
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileDto.getFilename() + "\"")
-                    .contentType(MediaType.APPLICATION_PDF)
-                    .body(fileDto.getData());
+            // 2. Envia o arquivo com Content-Disposition, ETag/Last-Modified (304) e suporte a Range (206)
+            return PdfDownloadResponses.of(fileDto, request, response);
 
         } catch (IOException e) {
             logger.error("Falha ao ler o arquivo PDF do disco. Tipo: {}, ID: {}. Erro: {}", type, id, e.getMessage());
@@ -176,4 +243,77 @@ public class DocumentController {
         );
         return ResponseEntity.ok(documentsPage);
     }
-}
\ No newline at end of file
+
+    /**
+     * Endpoint ADMIN: Busca textual em todos os documentos do sistema (ver searchMyDocuments).
+     */
+    @GetMapping("/admin/search")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Page<DocumentSummaryDTO>> searchAllDocumentsAdmin(@RequestParam String q, Pageable pageable) {
+        return ResponseEntity.ok(documentAggregationService.searchDocumentsGlobal(q, pageable));
+    }
+
+    /**
+     * Endpoint ADMIN: Modo cursor da listagem de todos os documentos (ver getMyDocumentsAfter).
+     */
+    @GetMapping(value = "/admin/all", params = "after")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<DocumentCursorPageDTO> getAllDocumentsAdminAfter(
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String clientName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam String after,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        DocumentCursorPageDTO page = documentAggregationService.findDocumentsGlobalAfter(
+                type, clientName, startDate, endDate, after, size, includeTotal
+        );
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * Endpoint ADMIN: Exporta a listagem completa de documentos para auditoria, com os mesmos
+     * filtros de /documents/admin/all. O arquivo é gerado enquanto é enviado (streaming),
+     * sem montar a lista inteira na memória.
+     * Ex: GET /documents/admin/export?format=csv&type=visit&startDate=2024-01-01
+     *
+     * @param format Formato do arquivo: csv ou ndjson
+     */
+    @GetMapping("/admin/export")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportDocumentsAdmin(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) String type,
+            @RequestParam(required = false) String clientName,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate
+    ) {
+        DocumentExportService.Format exportFormat = DocumentExportService.Format.fromParam(format);
+        if (exportFormat == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Formato inválido: " + format + ". Use csv ou ndjson."));
+        }
+
+        StreamingResponseBody body = outputStream -> documentExportService.export(
+                exportFormat, type, clientName, startDate, endDate, outputStream);
+
+        String filename = "documentos-" + LocalDate.now() + "." + exportFormat.getExtension();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType() + ";charset=UTF-8"))
+                .body(body);
+    }
+
+    /**
+     * Endpoint ADMIN: Reconstrói o índice unificado de documentos a partir das tabelas de origem.
+     * Útil após cargas manuais no banco ou na primeira implantação do índice.
+     */
+    @PostMapping("/admin/index/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Map<String, Long>> rebuildDocumentIndex() {
+        long total = documentIndexService.rebuild();
+        logger.info("Índice de documentos reconstruído via endpoint: {} documentos.", total);
+        return ResponseEntity.ok(Map.of("indexedDocuments", total));
+    }
+}
@@ -5,10 +5,14 @@ import com.gotree.API.entities.AepReport;
 import com.gotree.API.entities.OccupationalRiskReport;
 import com.gotree.API.entities.TechnicalVisit;
 import com.gotree.API.entities.User;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.exceptions.PdfNotReadyException;
+import com.gotree.API.exceptions.RenderCapacityExceededException;
 import com.gotree.API.repositories.AepReportRepository;
 import com.gotree.API.repositories.OccupationalRiskReportRepository;
 import com.gotree.API.repositories.TechnicalVisitRepository;
 import com.gotree.API.services.DocumentAggregationService;
+import com.gotree.API.services.DocumentIndexService;
 import com.gotree.API.services.EmailService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -32,6 +36,7 @@ public class DocumentEmailController {
     private final OccupationalRiskReportRepository riskRepo;
     private final AepReportRepository aepRepo;
     private final TechnicalVisitRepository visitRepo;
+    private final DocumentIndexService documentIndexService;
 
     /**
      * Construtor da classe DocumentEmailController.
@@ -41,17 +46,20 @@ public class DocumentEmailController {
      * @param riskRepo        Repositório de relatórios de risco ocupacional
      * @param aepRepo         Repositório de relatórios AEP
      * @param visitRepo       Repositório de visitas técnicas
+     * @param documentIndexService Serviço do índice unificado de documentos
      */
     public DocumentEmailController(DocumentAggregationService documentService,
                                    EmailService emailService,
                                    OccupationalRiskReportRepository riskRepo,
                                    AepReportRepository aepRepo,
-                                   TechnicalVisitRepository visitRepo) {
+                                   TechnicalVisitRepository visitRepo,
+                                   DocumentIndexService documentIndexService) {
         this.documentService = documentService;
         this.emailService = emailService;
         this.riskRepo = riskRepo;
         this.aepRepo = aepRepo;
         this.visitRepo = visitRepo;
+        this.documentIndexService = documentIndexService;
     }
 
     /**
@@ -68,8 +76,8 @@ public class DocumentEmailController {
         User user = ((CustomUserDetails) auth.getPrincipal()).user();
 
         try {
-            // 1. Gera/Carrega os bytes do PDF
-            byte[] pdfBytes = documentService.loadPdfFileByTypeAndId(type, id, user);
+            // 1. Gera/Localiza o PDF em disco
+            java.nio.file.Path pdfFile = documentService.loadPdfFileByTypeAndId(type, id, user);
 
             // Variáveis para processamento
             java.util.Set<com.gotree.API.entities.Client> clients = null;
@@ -98,6 +106,7 @@ public class DocumentEmailController {
 
                 report.setSentToClientAt(LocalDateTime.now());
                 riskRepo.save(report);
+                documentIndexService.markSent(DocumentType.RISK, id, report.getSentToClientAt());
 
             } else if ("visit".equalsIgnoreCase(type)) {
                 TechnicalVisit visit = visitRepo.findById(id)
@@ -116,6 +125,7 @@ public class DocumentEmailController {
 
                 visit.setSentToClientAt(LocalDateTime.now());
                 visitRepo.save(visit);
+                documentIndexService.markSent(DocumentType.VISIT, id, visit.getSentToClientAt());
 
             } else if ("aep".equalsIgnoreCase(type)) {
                 AepReport aep = aepRepo.findById(id)
@@ -134,6 +144,7 @@ public class DocumentEmailController {
 
                 aep.setSentToClientAt(LocalDateTime.now());
                 aepRepo.save(aep);
+                documentIndexService.markSent(DocumentType.AEP, id, aep.getSentToClientAt());
 
             } else {
                 return ResponseEntity.badRequest().body(Map.of("error", "Tipo de documento inválido: " + type));
@@ -185,7 +196,7 @@ public class DocumentEmailController {
             // 5. Envio
             for (String email : validEmails) {
                 try {
-                    emailService.sendReportWithAttachment(email, subject, body, pdfBytes, docName);
+                    emailService.sendReportWithAttachment(email, subject, body, pdfFile, docName);
                 } catch (Exception e) {
                     System.err.println("Erro ao enviar para: " + email + " - " + e.getMessage());
                 }
@@ -197,6 +208,8 @@ public class DocumentEmailController {
                     "emails_enviados", allEmails
             ));
 
+        } catch (RenderCapacityExceededException | PdfNotReadyException e) {
+            throw e; // Vira 429/503 + Retry-After no ResourceExceptionHandler
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.internalServerError().body(Map.of("error", "Erro ao processar envio: " + e.getMessage()));
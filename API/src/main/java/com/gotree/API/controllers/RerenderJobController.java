@@ -0,0 +1,82 @@
+package com.gotree.API.controllers;
+
+import com.gotree.API.config.security.CustomUserDetails;
+import com.gotree.API.dto.document.RerenderJobDTO;
+import com.gotree.API.dto.document.RerenderJobRequestDTO;
+import com.gotree.API.services.RerenderJobService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Re-renderização em lote dos PDFs (após mudança de template ou da logo da empresa).
+ * Todos os endpoints requerem autenticação com papel ADMIN.
+ */
+@RestController
+@RequestMapping("/documents/admin/rerender-jobs")
+@PreAuthorize("hasRole('ADMIN')")
+public class RerenderJobController {
+
+    private final RerenderJobService rerenderJobService;
+
+    public RerenderJobController(RerenderJobService rerenderJobService) {
+        this.rerenderJobService = rerenderJobService;
+    }
+
+    /**
+     * Cria e inicia um job sobre os documentos do filtro (tipo, empresa e período; vazio = todos).
+     *
+     * @return 202 com a situação inicial do job (acompanhar em GET /{id})
+     */
+    @PostMapping
+    public ResponseEntity<?> start(@RequestBody @Valid RerenderJobRequestDTO request, Authentication authentication) {
+        CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
+        return handle(() -> ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(rerenderJobService.start(request, userDetails.user())));
+    }
+
+    @GetMapping
+    public List<RerenderJobDTO> findAll() {
+        return rerenderJobService.findAll();
+    }
+
+    /**
+     * Progresso, vazão, estimativa de término e documentos que falharam.
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<RerenderJobDTO> findById(@PathVariable Long id) {
+        return ResponseEntity.ok(rerenderJobService.findById(id));
+    }
+
+    @PostMapping("/{id}/pause")
+    public ResponseEntity<?> pause(@PathVariable Long id) {
+        return handle(() -> ResponseEntity.ok(rerenderJobService.pause(id)));
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<?> resume(@PathVariable Long id) {
+        return handle(() -> ResponseEntity.ok(rerenderJobService.resume(id)));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public ResponseEntity<?> cancel(@PathVariable Long id) {
+        return handle(() -> ResponseEntity.ok(rerenderJobService.cancel(id)));
+    }
+
+    private ResponseEntity<?> handle(Supplier<ResponseEntity<?>> action) {
+        try {
+            return action.get();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", e.getMessage()));
+        }
+    }
+}
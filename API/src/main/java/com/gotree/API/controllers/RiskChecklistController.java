@@ -65,7 +65,8 @@ public class RiskChecklistController {
     }
 
     /**
-     * Atualiza um relatório de risco ocupacional existente e regenera o PDF.
+     * Atualiza um relatório de risco ocupacional existente. O PDF é regerado no próximo acesso,
+     * apenas se algo impresso nele mudou.
      *
      * @param id             ID do relatório a ser atualizado
      * @param dto            DTO contendo os novos dados do relatório
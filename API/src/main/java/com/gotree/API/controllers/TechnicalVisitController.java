@@ -3,21 +3,26 @@ package com.gotree.API.controllers;
 import com.gotree.API.config.security.CustomUserDetails;
 import com.gotree.API.dto.visit.CreateTechnicalVisitRequestDTO;
 import com.gotree.API.dto.visit.TechnicalVisitResponseDTO;
+import com.gotree.API.dto.visit.VisitPdfStatusDTO;
 import com.gotree.API.entities.TechnicalVisit;
 import com.gotree.API.entities.User;
 import com.gotree.API.mappers.TechnicalVisitMapper;
 import com.gotree.API.services.TechnicalVisitService;
+import com.gotree.API.services.VisitPdfRenderService;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -27,6 +32,7 @@ import java.util.Map;
  * Controller responsável por gerenciar as operações relacionadas às visitas técnicas.
  * Fornece endpoints para:
  * - Criar novas visitas técnicas e gerar relatórios em PDF
+ * - Criar visitas com geração do PDF em segundo plano e acompanhar o status
  * - Listar visitas técnicas do técnico autenticado
  * <p>
  * Base URL: /technical-visits
@@ -39,10 +45,13 @@ public class TechnicalVisitController {
 
     private final TechnicalVisitService technicalVisitService;
     private final TechnicalVisitMapper technicalVisitMapper;
+    private final VisitPdfRenderService visitPdfRenderService;
 
-    public TechnicalVisitController(TechnicalVisitService technicalVisitService, TechnicalVisitMapper technicalVisitMapper) {
+    public TechnicalVisitController(TechnicalVisitService technicalVisitService, TechnicalVisitMapper technicalVisitMapper,
+                                    VisitPdfRenderService visitPdfRenderService) {
         this.technicalVisitService = technicalVisitService;
         this.technicalVisitMapper = technicalVisitMapper;
+        this.visitPdfRenderService = visitPdfRenderService;
     }
 
     /**
@@ -71,6 +80,62 @@ public class TechnicalVisitController {
                 ));
     }
 
+    /**
+     * Cria uma nova visita técnica sem esperar o PDF: a visita é salva e o PDF entra na fila de geração.
+     * O andamento pode ser consultado em /technical-visits/{id}/pdf-status (ou por SSE em .../stream).
+     *
+     * @param dto            Dados da visita técnica a ser criada
+     * @param authentication Dados do usuário autenticado
+     * @return ResponseEntity 202 (Accepted) com o ID da visita e o status PENDING
+     */
+    @PostMapping("/async")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<?> createVisitAsync(@RequestBody @Valid CreateTechnicalVisitRequestDTO dto, Authentication authentication) {
+        User technician = ((CustomUserDetails) authentication.getPrincipal()).user();
+
+        TechnicalVisit createdVisit = technicalVisitService.createForAsyncPdf(dto, technician);
+
+        return ResponseEntity
+                .status(HttpStatus.ACCEPTED)
+                .body(Map.of(
+                        "message", "Relatório de visita técnica salvo. O PDF está sendo gerado.",
+                        "visitId", createdVisit.getId(),
+                        "pdfStatus", createdVisit.getPdfStatus(),
+                        "statusUrl", "/technical-visits/" + createdVisit.getId() + "/pdf-status"
+                ));
+    }
+
+    /**
+     * Consulta a situação da geração do PDF de uma visita (PENDING, READY ou FAILED).
+     */
+    @GetMapping("/{id}/pdf-status")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<VisitPdfStatusDTO> getPdfStatus(@PathVariable Long id, Authentication authentication) {
+        User currentUser = ((CustomUserDetails) authentication.getPrincipal()).user();
+        return ResponseEntity.ok(visitPdfRenderService.getStatus(id, currentUser));
+    }
+
+    /**
+     * Acompanha a geração do PDF por Server-Sent Events: um único evento "pdf-status" é enviado
+     * quando o PDF fica pronto ou falha, e a conexão é encerrada.
+     */
+    @GetMapping(value = "/{id}/pdf-status/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("isAuthenticated()")
+    public SseEmitter streamPdfStatus(@PathVariable Long id, Authentication authentication) {
+        User currentUser = ((CustomUserDetails) authentication.getPrincipal()).user();
+        return visitPdfRenderService.subscribe(id, currentUser);
+    }
+
+    /**
+     * Solicita novamente a geração de um PDF que falhou.
+     */
+    @PostMapping("/{id}/pdf/retry")
+    @PreAuthorize("isAuthenticated()")
+    public ResponseEntity<VisitPdfStatusDTO> retryPdf(@PathVariable Long id, Authentication authentication) {
+        User currentUser = ((CustomUserDetails) authentication.getPrincipal()).user();
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(visitPdfRenderService.retry(id, currentUser));
+    }
+
     /**
      * Retorna todas as visitas técnicas realizadas pelo técnico autenticado.
      *
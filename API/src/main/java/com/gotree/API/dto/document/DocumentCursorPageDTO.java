@@ -0,0 +1,26 @@
+package com.gotree.API.dto.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Página da listagem de documentos no modo cursor (rolagem infinita).
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentCursorPageDTO {
+
+    private List<DocumentSummaryDTO> content;
+
+    private int size;
+
+    // Token a ser enviado em "after" para buscar a próxima página (null = não há mais documentos)
+    private String nextCursor;
+
+    // Total de documentos do filtro; só é calculado quando solicitado (includeTotal=true)
+    private Long totalElements;
+}
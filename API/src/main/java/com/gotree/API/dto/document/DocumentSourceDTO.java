@@ -0,0 +1,30 @@
+package com.gotree.API.dto.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Projeção com os campos de um documento (visita, AEP ou checklist) necessários para o índice
+ * unificado. Preenchida por consultas "SELECT new" que já trazem empresa e técnico via JOIN
+ * e calculam a assinatura como booleano, sem carregar a coluna TEXT com a imagem Base64.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentSourceDTO {
+
+    private Long id;
+    private String title;
+    private Long companyId;
+    private String companyName;
+    private Long technicianId;
+    private String technicianName;
+    private LocalDate creationDate;
+    private Boolean signed;
+    private LocalDateTime sentAt;
+    private String pdfPath;
+}
@@ -0,0 +1,18 @@
+package com.gotree.API.dto.document;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Trecho de texto pesquisável de um documento (resumo, descrição de achado, nome de função...).
+ * Usado para montar o texto de busca do índice de documentos em lote.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DocumentTextDTO {
+
+    private Long documentId;
+    private String text;
+}
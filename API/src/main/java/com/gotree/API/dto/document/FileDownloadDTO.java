@@ -3,9 +3,11 @@ package com.gotree.API.dto.document;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.nio.file.Path;
+
 @Data
 @AllArgsConstructor
 public class FileDownloadDTO {
     private String filename;
-    private byte[] data;
-}
\ No newline at end of file
+    private Path path; // PDF em disco: enviado por streaming, sem carregar os bytes na memória
+}
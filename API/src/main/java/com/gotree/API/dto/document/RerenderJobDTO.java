@@ -0,0 +1,50 @@
+package com.gotree.API.dto.document;
+
+import com.gotree.API.enums.RerenderJobStatus;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Situação de um job de re-renderização: filtro, progresso, vazão e falhas.
+ */
+@Data
+public class RerenderJobDTO {
+
+    private Long id;
+    private RerenderJobStatus status;
+
+    private String type;
+    private Long companyId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private int parallelism;
+
+    private long totalDocuments;
+    private long processedDocuments;
+    private long renderedDocuments;
+    private long failedDocuments;
+    private double progressPercent;
+
+    // Vazão medida no tempo em execução (sem pausas) e estimativa para o restante
+    private double documentsPerMinute;
+    private Long estimatedSecondsRemaining;
+
+    private String requestedBy;
+    private LocalDateTime createdAt;
+    private LocalDateTime finishedAt;
+    private String lastError;
+
+    // Preenchido apenas no detalhe do job
+    private List<Failure> failures;
+
+    @Data
+    public static class Failure {
+        private String type;
+        private Long documentId;
+        private String message;
+        private LocalDateTime failedAt;
+    }
+}
@@ -0,0 +1,28 @@
+package com.gotree.API.dto.document;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * Filtro e paralelismo de um job de re-renderização em lote. Campos nulos = todos os documentos.
+ */
+@Data
+public class RerenderJobRequestDTO {
+
+    // "visit", "aep" ou "risk"
+    private String type;
+
+    private Long companyId;
+
+    private LocalDate startDate;
+
+    private LocalDate endDate;
+
+    // PDFs gerados ao mesmo tempo pelo job (padrão: app.rerender.default-parallelism)
+    @Min(1)
+    @Max(8)
+    private Integer parallelism;
+}
@@ -0,0 +1,18 @@
+package com.gotree.API.dto.visit;
+
+import com.gotree.API.enums.PdfStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Situação da geração do PDF de uma visita técnica enviada no modo assíncrono.
+ * downloadUrl só é preenchido quando o PDF está pronto (READY).
+ */
+@Data
+@AllArgsConstructor
+public class VisitPdfStatusDTO {
+
+    private Long visitId;
+    private PdfStatus status;
+    private String downloadUrl;
+}
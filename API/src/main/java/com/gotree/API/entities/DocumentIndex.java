@@ -0,0 +1,79 @@
+package com.gotree.API.entities;
+
+import com.gotree.API.enums.DocumentType;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Modelo de leitura (read model) com uma linha por documento emitido.
+ * Mantido na escrita pelos serviços de Visita, AEP e Checklist de Riscos, permite
+ * que listagens, widgets e dashboard consultem uma única tabela indexada em vez de
+ * reconstruir a lista a partir das três tabelas de origem.
+ *
+ * @see com.gotree.API.services.DocumentIndexService
+ */
+@Entity
+@Table(name = "tb_document_index",
+        uniqueConstraints = @UniqueConstraint(name = "uk_document_index_type_document",
+                columnNames = {"document_type", "document_id"}),
+        indexes = {
+                @Index(name = "idx_document_index_technician_date", columnList = "technician_id, creation_date DESC"),
+                @Index(name = "idx_document_index_technician_type_date", columnList = "technician_id, document_type, creation_date DESC"),
+                @Index(name = "idx_document_index_type_date", columnList = "document_type, creation_date DESC")
+        })
+@Data
+public class DocumentIndex {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", nullable = false, length = 16)
+    private DocumentType documentType;
+
+    /**
+     * ID do documento na tabela de origem (tb_technical_visit, tb_aep_report ou tb_occupational_risk_report).
+     */
+    @Column(name = "document_id", nullable = false)
+    private Long documentId;
+
+    private String title;
+
+    @Column(name = "company_id")
+    private Long companyId;
+
+    @Column(name = "company_name")
+    private String companyName;
+
+    @Column(name = "technician_id")
+    private Long technicianId;
+
+    @Column(name = "technician_name")
+    private String technicianName;
+
+    /**
+     * Data de referência do documento (data da visita, da avaliação ou da inspeção).
+     */
+    @Column(name = "creation_date")
+    private LocalDate creationDate;
+
+    private boolean signed;
+
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+
+    @Column(name = "pdf_path")
+    private String pdfPath;
+
+    /**
+     * Texto pesquisável do documento, já sem acentos e em minúsculas (título, resumo, achados,
+     * funções avaliadas). Os índices GIN (tsvector e trigramas) sobre esta coluna são criados
+     * pelo SearchIndexInitializer, pois o Hibernate não gera índices de expressão.
+     */
+    @Column(name = "search_text", columnDefinition = "TEXT")
+    private String searchText;
+}
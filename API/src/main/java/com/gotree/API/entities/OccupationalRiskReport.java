@@ -47,6 +47,13 @@ public class OccupationalRiskReport {
      */
     private String pdfPath;
 
+    /**
+     * SHA-256 dos campos impressos no PDF. Quando muda numa edição, o PDF atual deixa de valer
+     * e só é gerado de novo no próximo acesso.
+     */
+    @Column(name = "content_digest", length = 64)
+    private String contentDigest;
+
     /**
      * Empresa onde a avaliação foi realizada.
      */
@@ -0,0 +1,35 @@
+package com.gotree.API.entities;
+
+import com.gotree.API.enums.DocumentType;
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Documento que falhou em um job de re-renderização (o PDF anterior continua valendo).
+ */
+@Embeddable
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RerenderFailure {
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", length = 16)
+    private DocumentType documentType;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(length = 500)
+    private String message;
+
+    @Column(name = "failed_at")
+    private LocalDateTime failedAt;
+}
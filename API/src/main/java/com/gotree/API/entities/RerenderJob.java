@@ -0,0 +1,95 @@
+package com.gotree.API.entities;
+
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.enums.RerenderJobStatus;
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Job de re-renderização em lote dos PDFs (após mudança de template ou da identidade visual).
+ *
+ * Os documentos do filtro são percorridos pelo índice (tb_document_index) em ordem de ID;
+ * lastIndexId é o checkpoint gravado a cada lote concluído, de onde o job continua ao ser
+ * retomado ou após um reinício da aplicação.
+ *
+ * @see com.gotree.API.services.RerenderJobService
+ */
+@Entity
+@Table(name = "tb_rerender_job")
+@Data
+public class RerenderJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private RerenderJobStatus status;
+
+    // --- Filtro (campos nulos = sem restrição) ---
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "document_type", length = 16)
+    private DocumentType documentType;
+
+    @Column(name = "company_id")
+    private Long companyId;
+
+    @Column(name = "start_date")
+    private LocalDate startDate;
+
+    @Column(name = "end_date")
+    private LocalDate endDate;
+
+    private int parallelism;
+
+    // --- Progresso ---
+
+    @Column(name = "total_documents")
+    private long totalDocuments;
+
+    @Column(name = "processed_documents")
+    private long processedDocuments;
+
+    // PDFs gerados de novo (os demais já estavam atualizados ou falharam)
+    @Column(name = "rendered_documents")
+    private long renderedDocuments;
+
+    @Column(name = "failed_documents")
+    private long failedDocuments;
+
+    /**
+     * Checkpoint: ID (tb_document_index) do último documento do último lote concluído.
+     */
+    @Column(name = "last_index_id")
+    private Long lastIndexId;
+
+    /**
+     * Tempo efetivamente processando (sem pausas), usado no cálculo da vazão.
+     */
+    @Column(name = "active_millis")
+    private long activeMillis;
+
+    @Column(name = "requested_by")
+    private String requestedBy;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+
+    @Column(name = "finished_at")
+    private LocalDateTime finishedAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @ElementCollection(fetch = FetchType.LAZY)
+    @CollectionTable(name = "tb_rerender_job_failure", joinColumns = @JoinColumn(name = "job_id"))
+    @OrderColumn(name = "position")
+    private List<RerenderFailure> failures = new ArrayList<>();
+}
@@ -1,5 +1,6 @@
 package com.gotree.API.entities;
 
+import com.gotree.API.events.SystemInfoEntityListener;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -12,6 +13,7 @@ import lombok.Data;
  */
 @Entity
 @Table(name = "tb_system_info")
+@EntityListeners(SystemInfoEntityListener.class)
 @Data
 public class SystemInfo {
 
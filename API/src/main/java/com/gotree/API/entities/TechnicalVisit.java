@@ -1,5 +1,6 @@
 package com.gotree.API.entities;
 
+import com.gotree.API.enums.PdfStatus;
 import com.gotree.API.enums.Shift;
 import jakarta.persistence.*;
 import lombok.Data;
@@ -42,6 +43,11 @@ public class TechnicalVisit {
 
     private String pdfPath;
 
+    // Situação da geração do PDF (nulo em visitas antigas, geradas de forma síncrona)
+    @Enumerated(EnumType.STRING)
+    @Column(name = "pdf_status")
+    private PdfStatus pdfStatus;
+
     @Enumerated(EnumType.STRING)
     private Shift nextVisitShift;
 
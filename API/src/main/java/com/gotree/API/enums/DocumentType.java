@@ -0,0 +1,38 @@
+package com.gotree.API.enums;
+
+import lombok.Getter;
+
+/**
+ * Tipos de documento gerados pelo sistema.
+ * - code: identificador usado nas URLs e filtros (ex: /documents/visit/45)
+ * - label: nome exibido nas listagens do front
+ */
+@Getter
+public enum DocumentType {
+
+    VISIT("visit", "Relatório de Visita"),
+    AEP("aep", "Avaliação Ergonômica Preliminar"),
+    RISK("risk", "Checklist de Riscos");
+
+    private final String code;
+    private final String label;
+
+    DocumentType(String code, String label) {
+        this.code = code;
+        this.label = label;
+    }
+
+    /**
+     * Converte o código vindo da URL/filtro (case-insensitive) para o enum.
+     *
+     * @return o tipo correspondente ou null se o código for desconhecido
+     */
+    public static DocumentType fromCode(String code) {
+        if (code == null) return null;
+        String normalized = code.trim();
+        for (DocumentType type : values()) {
+            if (type.code.equalsIgnoreCase(normalized)) return type;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,14 @@
+package com.gotree.API.enums;
+
+/**
+ * Situação da geração do PDF de um documento.
+ * - PENDING: documento salvo, PDF na fila (ou sendo renderizado)
+ * - READY: PDF gravado em disco
+ * - FAILED: a renderização falhou; pode ser solicitada novamente
+ */
+public enum PdfStatus {
+
+    PENDING,
+    READY,
+    FAILED
+}
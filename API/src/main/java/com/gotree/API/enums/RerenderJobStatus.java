@@ -0,0 +1,18 @@
+package com.gotree.API.enums;
+
+/**
+ * Situação de um job de re-renderização em lote.
+ * - RUNNING: processando (ou aguardando retomada após reinício da aplicação)
+ * - PAUSED: parado pelo admin no último checkpoint; pode ser retomado
+ * - COMPLETED: todos os documentos do filtro foram processados
+ * - CANCELLED: interrompido pelo admin; não pode ser retomado
+ * - FAILED: erro do próprio job (ex: consulta ao índice); pode ser retomado do último checkpoint
+ */
+public enum RerenderJobStatus {
+
+    RUNNING,
+    PAUSED,
+    COMPLETED,
+    CANCELLED,
+    FAILED
+}
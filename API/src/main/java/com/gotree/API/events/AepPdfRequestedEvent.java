@@ -0,0 +1,10 @@
+package com.gotree.API.events;
+
+/**
+ * Evento disparado quando uma AEP é salva sem PDF válido (nova ou com conteúdo alterado).
+ * Só é tratado após o commit, para que a pré-geração já encontre os dados novos no banco.
+ *
+ * @param aepId ID da AEP
+ */
+public record AepPdfRequestedEvent(Long aepId) {
+}
@@ -0,0 +1,19 @@
+package com.gotree.API.events;
+
+import com.gotree.API.enums.DocumentType;
+
+/**
+ * Evento de domínio disparado quando um documento (visita, AEP ou checklist) é criado,
+ * alterado, excluído ou enviado ao cliente, ou quando um nome exibido nas listagens muda.
+ *
+ * @param documentType Tipo do documento (null quando a alteração não é de um documento específico)
+ * @param documentId   ID do documento na tabela de origem (null idem)
+ * @param technicianId Técnico dono do documento; null indica que a alteração pode afetar
+ *                     qualquer técnico (ex.: empresa renomeada)
+ */
+public record DocumentChangedEvent(DocumentType documentType, Long documentId, Long technicianId) {
+
+    public static DocumentChangedEvent affectingEveryone() {
+        return new DocumentChangedEvent(null, null, null);
+    }
+}
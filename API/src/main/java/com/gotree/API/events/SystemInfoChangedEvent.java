@@ -0,0 +1,8 @@
+package com.gotree.API.events;
+
+/**
+ * Evento disparado quando o registro de SystemInfo (dados da empresa emissora) é criado,
+ * alterado ou removido. Usado para descartar o snapshot mantido pelo SystemInfoCache.
+ */
+public record SystemInfoChangedEvent() {
+}
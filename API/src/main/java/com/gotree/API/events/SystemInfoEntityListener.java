@@ -0,0 +1,29 @@
+package com.gotree.API.events;
+
+import com.gotree.API.entities.SystemInfo;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA de SystemInfo: qualquer escrita na entidade publica um SystemInfoChangedEvent.
+ * É um bean do Spring (o Hibernate obtém os listeners pelo contêiner do Spring).
+ */
+@Component
+public class SystemInfoEntityListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public SystemInfoEntityListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(SystemInfo info) {
+        eventPublisher.publishEvent(new SystemInfoChangedEvent());
+    }
+}
@@ -0,0 +1,10 @@
+package com.gotree.API.events;
+
+/**
+ * Evento disparado quando uma visita técnica é salva no modo assíncrono e o PDF ainda precisa
+ * ser gerado. Só é tratado após o commit, para que a renderização já encontre a visita no banco.
+ *
+ * @param visitId ID da visita técnica
+ */
+public record VisitPdfRequestedEvent(Long visitId) {
+}
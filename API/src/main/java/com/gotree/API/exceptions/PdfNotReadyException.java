@@ -0,0 +1,21 @@
+package com.gotree.API.exceptions;
+
+/**
+ * Lançada quando o PDF de um documento ainda está na fila de geração assíncrona.
+ * Convertida em 503 (Service Unavailable) com o cabeçalho Retry-After.
+ */
+public class PdfNotReadyException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public PdfNotReadyException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
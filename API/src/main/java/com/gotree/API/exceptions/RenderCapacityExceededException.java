@@ -0,0 +1,21 @@
+package com.gotree.API.exceptions;
+
+/**
+ * Lançada quando a geração de PDF está saturada (todas as vagas em uso e fila cheia ou espera esgotada).
+ * Convertida em 429 (Too Many Requests) com o cabeçalho Retry-After.
+ */
+public class RenderCapacityExceededException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long retryAfterSeconds;
+
+    public RenderCapacityExceededException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
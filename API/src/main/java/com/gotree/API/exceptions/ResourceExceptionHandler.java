@@ -6,6 +6,7 @@ import java.util.HashMap;
 import java.util.Map;
 
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
@@ -59,6 +60,39 @@ public class ResourceExceptionHandler {
         return ResponseEntity.status(status).body(err);
     }
 
+    // Cursor de paginação malformado ou adulterado
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<StandardError> handleInvalidCursor(InvalidCursorException e,
+                                                             HttpServletRequest request) {
+        HttpStatus status = HttpStatus.BAD_REQUEST;
+        StandardError err = new StandardError(Instant.now(), status.value(), "Cursor inválido", e.getMessage(),
+                request.getRequestURI());
+        return ResponseEntity.status(status).body(err);
+    }
+
+    // Geração de PDF saturada: o cliente deve tentar de novo depois do Retry-After
+    @ExceptionHandler(RenderCapacityExceededException.class)
+    public ResponseEntity<StandardError> handleRenderCapacityExceeded(RenderCapacityExceededException e,
+                                                                      HttpServletRequest request) {
+        HttpStatus status = HttpStatus.TOO_MANY_REQUESTS;
+        StandardError err = new StandardError(Instant.now(), status.value(), "Serviço ocupado", e.getMessage(),
+                request.getRequestURI());
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(err);
+    }
+
+    // PDF ainda em geração (fluxo assíncrono): o cliente deve tentar de novo depois do Retry-After
+    @ExceptionHandler(PdfNotReadyException.class)
+    public ResponseEntity<StandardError> handlePdfNotReady(PdfNotReadyException e, HttpServletRequest request) {
+        HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE;
+        StandardError err = new StandardError(Instant.now(), status.value(), "PDF em geração", e.getMessage(),
+                request.getRequestURI());
+        return ResponseEntity.status(status)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .body(err);
+    }
+
     // Exceções não tratadas (Erro inesperado no sistema)
     @ExceptionHandler(Exception.class)
     public ResponseEntity<StandardError> handleGlobalException(Exception e, HttpServletRequest request) {
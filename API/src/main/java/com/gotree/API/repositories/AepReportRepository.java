@@ -1,9 +1,14 @@
 package com.gotree.API.repositories;
 
+import com.gotree.API.dto.document.DocumentSourceDTO;
 import com.gotree.API.entities.AepReport;
 import com.gotree.API.entities.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -14,6 +19,15 @@ import java.util.Optional;
  */
 public interface AepReportRepository extends JpaRepository<AepReport, Long> {
 
+    /**
+     * Projeção com o ID e o caminho do PDF, usada pela varredura de PDFs ausentes.
+     */
+    interface PdfPathView {
+        Long getId();
+
+        String getPdfPath();
+    }
+
     /**
      * Busca todos os relatórios AEP associados a um avaliador específico.
      *
@@ -50,4 +64,47 @@ public interface AepReportRepository extends JpaRepository<AepReport, Long> {
 
     @EntityGraph(attributePaths = {"company", "company.client"})
     Optional<AepReport> findById(Long id);
+
+    /**
+     * Projeção das AEPs para o índice de documentos, em lotes ordenados por ID (keyset).
+     * AEP não possui assinatura do técnico, por isso o campo é sempre falso.
+     *
+     * @param lastId ID da última AEP do lote anterior (0 para começar)
+     * @param batch  Tamanho do lote (apenas o tamanho da página é usado)
+     */
+    @Query("SELECT new com.gotree.API.dto.document.DocumentSourceDTO(" +
+            "a.id, a.evaluatedFunction, c.id, c.name, e.id, e.name, a.evaluationDate, false, " +
+            "a.sentToClientAt, a.pdfPath) " +
+            "FROM AepReport a LEFT JOIN a.company c LEFT JOIN a.evaluator e " +
+            "WHERE a.id > :lastId ORDER BY a.id")
+    List<DocumentSourceDTO> findIndexSourcesAfter(@Param("lastId") Long lastId, Pageable batch);
+
+    /**
+     * IDs das AEPs ainda sem PDF (novas ou editadas), para a pré-geração em segundo plano.
+     */
+    @Query("SELECT a.id FROM AepReport a WHERE a.pdfPath IS NULL ORDER BY a.id")
+    List<Long> findIdsWithoutPdf(Pageable batch);
+
+    /**
+     * Caminhos dos PDFs já gerados, em lotes ordenados por ID (keyset), para conferir se o arquivo existe.
+     *
+     * @param lastId ID da última AEP do lote anterior (0 para começar)
+     * @param batch  Tamanho do lote (apenas o tamanho da página é usado)
+     */
+    @Query("SELECT a.id AS id, a.pdfPath AS pdfPath FROM AepReport a " +
+            "WHERE a.pdfPath IS NOT NULL AND a.id > :lastId ORDER BY a.id")
+    List<PdfPathView> findPdfPathsAfter(@Param("lastId") Long lastId, Pageable batch);
+
+    /**
+     * Grava o caminho do PDF apenas se o valor atual ainda for o esperado (null = ainda sem PDF).
+     * Evita que duas gerações simultâneas (em instâncias diferentes) sobrescrevam uma à outra.
+     * Limpa o contexto de persistência: uma AEP já carregada na transação não fica com o caminho antigo.
+     *
+     * @return 1 se gravou, 0 se o pdfPath já tinha sido alterado
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE AepReport a SET a.pdfPath = :newPath WHERE a.id = :id AND " +
+            "((:expectedPath IS NULL AND a.pdfPath IS NULL) OR a.pdfPath = :expectedPath)")
+    int updatePdfPathIfUnchanged(@Param("id") Long id, @Param("expectedPath") String expectedPath,
+                                 @Param("newPath") String newPath);
 }
@@ -2,8 +2,12 @@ package com.gotree.API.repositories;
 
 import com.gotree.API.entities.Client;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -14,4 +18,19 @@ public interface ClientRepository extends JpaRepository<Client, Long> {
 
     // Metodo útil para buscar por e-mail (caso precise no futuro)
     Optional<Client> findByEmail(String email);
-}
\ No newline at end of file
+
+    /**
+     * Busca, em uma única consulta, os e-mails dos clientes vinculados a cada empresa informada.
+     * Os e-mails de cada empresa já vêm concatenados com vírgula (string_agg).
+     *
+     * @param companyIds IDs das empresas da página sendo exibida
+     * @return Uma linha por empresa que possui clientes vinculados
+     */
+    @Query(value = "SELECT cc.company_id AS \"companyId\", string_agg(cl.email, ', ') AS \"emails\" " +
+            "FROM tb_client_company cc " +
+            "JOIN tb_client cl ON cl.id = cc.client_id " +
+            "WHERE cc.company_id IN (:companyIds) " +
+            "GROUP BY cc.company_id",
+            nativeQuery = true)
+    List<CompanyEmailsView> findEmailsByCompanyIds(@Param("companyIds") Collection<Long> companyIds);
+}
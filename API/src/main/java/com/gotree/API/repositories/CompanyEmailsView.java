@@ -0,0 +1,11 @@
+package com.gotree.API.repositories;
+
+/**
+ * Projeção com os e-mails dos clientes de uma empresa, já agregados pelo banco.
+ */
+public interface CompanyEmailsView {
+
+    Long getCompanyId();
+
+    String getEmails();
+}
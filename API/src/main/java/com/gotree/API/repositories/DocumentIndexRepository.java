@@ -0,0 +1,229 @@
+package com.gotree.API.repositories;
+
+import com.gotree.API.dto.dashboard.CompanyCountDTO;
+import com.gotree.API.entities.DocumentIndex;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.utils.DocumentCursor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Order;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repositório do índice unificado de documentos (tb_document_index).
+ * Todas as listagens de documentos leem desta tabela.
+ */
+public interface DocumentIndexRepository extends JpaRepository<DocumentIndex, Long>, JpaSpecificationExecutor<DocumentIndex> {
+
+    // --- Busca textual (tsvector em português + trigramas do pg_trgm sobre search_text) ---
+    // O termo buscado deve chegar normalizado (SearchTextNormalizer), assim como search_text.
+
+    String SEARCH_MATCH = "(to_tsvector('portuguese', d.search_text) @@ plainto_tsquery('portuguese', :query) " +
+            "OR :query <% d.search_text)";
+
+    String SEARCH_RANK = "(ts_rank(to_tsvector('portuguese', d.search_text), plainto_tsquery('portuguese', :query)) " +
+            "+ word_similarity(:query, d.search_text))";
+
+    // Chave do advisory lock do índice (os bytes de "docidx")
+    long INDEX_LOCK_KEY = 0x646f63696478L;
+
+    Optional<DocumentIndex> findByDocumentTypeAndDocumentId(DocumentType documentType, Long documentId);
+
+    /**
+     * Lock compartilhado do índice até o fim da transação: escritas comuns não se bloqueiam entre si,
+     * mas esperam uma reconstrução em andamento (e a reconstrução espera as escritas em andamento).
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock_shared(" + INDEX_LOCK_KEY + ")", nativeQuery = true)
+    Integer lockForWrite();
+
+    /**
+     * Lock exclusivo do índice até o fim da transação (reconstrução completa).
+     */
+    @Query(value = "SELECT 1 FROM pg_advisory_xact_lock(" + INDEX_LOCK_KEY + ")", nativeQuery = true)
+    Integer lockForRebuild();
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM DocumentIndex d WHERE d.documentType = :type AND d.documentId = :documentId")
+    int deleteByDocument(@Param("type") DocumentType type, @Param("documentId") Long documentId);
+
+    /**
+     * BUSCA: Documentos de um técnico que casam com o termo, do mais relevante para o menos relevante.
+     */
+    @Query(value = "SELECT d.* FROM tb_document_index d " +
+            "WHERE d.technician_id = :technicianId AND " + SEARCH_MATCH + " " +
+            "ORDER BY " + SEARCH_RANK + " DESC, d.creation_date DESC, d.id DESC",
+            countQuery = "SELECT count(*) FROM tb_document_index d " +
+                    "WHERE d.technician_id = :technicianId AND " + SEARCH_MATCH,
+            nativeQuery = true)
+    Page<DocumentIndex> searchForTechnician(@Param("technicianId") Long technicianId,
+                                            @Param("query") String query, Pageable pageable);
+
+    /**
+     * BUSCA ADMIN: Todos os documentos do sistema que casam com o termo, por relevância.
+     */
+    @Query(value = "SELECT d.* FROM tb_document_index d " +
+            "WHERE " + SEARCH_MATCH + " " +
+            "ORDER BY " + SEARCH_RANK + " DESC, d.creation_date DESC, d.id DESC",
+            countQuery = "SELECT count(*) FROM tb_document_index d WHERE " + SEARCH_MATCH,
+            nativeQuery = true)
+    Page<DocumentIndex> searchAll(@Param("query") String query, Pageable pageable);
+
+    /**
+     * Indica se há linhas sem texto de busca (índice criado antes da busca textual).
+     */
+    boolean existsBySearchTextIsNull();
+
+    /**
+     * WIDGET: Documentos mais recentes de um técnico para UM tipo
+     * (usa idx_document_index_technician_type_date, sem ordenar o histórico).
+     */
+    List<DocumentIndex> findByTechnicianIdAndDocumentTypeAndCreationDateNotNullOrderByCreationDateDescDocumentIdDesc(
+            Long technicianId, DocumentType documentType, Limit limit);
+
+    /**
+     * WIDGET ADMIN: Documentos mais recentes do sistema para UM tipo (usa idx_document_index_type_date).
+     */
+    List<DocumentIndex> findByDocumentTypeAndCreationDateNotNullOrderByCreationDateDescDocumentIdDesc(
+            DocumentType documentType, Limit limit);
+
+    /**
+     * WIDGET: Documentos sem data de um técnico, na ordem da listagem (tipo asc, ID desc).
+     * Completa o widget quando há menos documentos com data do que o limite.
+     */
+    List<DocumentIndex> findByTechnicianIdAndCreationDateIsNullOrderByDocumentTypeAscDocumentIdDesc(
+            Long technicianId, Limit limit);
+
+    /**
+     * WIDGET ADMIN: Documentos sem data do sistema, na ordem da listagem (tipo asc, ID desc).
+     */
+    List<DocumentIndex> findByCreationDateIsNullOrderByDocumentTypeAscDocumentIdDesc(Limit limit);
+
+    /**
+     * DASHBOARD: Quantidade de documentos por empresa para um técnico, da maior para a menor.
+     */
+    @Query("SELECT new com.gotree.API.dto.dashboard.CompanyCountDTO(d.companyName, COUNT(d)) " +
+            "FROM DocumentIndex d " +
+            "WHERE d.technicianId = :technicianId AND d.companyName IS NOT NULL " +
+            "GROUP BY d.companyName " +
+            "ORDER BY COUNT(d) DESC")
+    List<CompanyCountDTO> countByCompanyForTechnician(@Param("technicianId") Long technicianId, Pageable pageable);
+
+    // --- Propagação de alterações de cadastro (nomes desnormalizados) ---
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentIndex d SET d.companyName = :name WHERE d.companyId = :companyId")
+    int updateCompanyName(@Param("companyId") Long companyId, @Param("name") String name);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE DocumentIndex d SET d.technicianName = :name WHERE d.technicianId = :technicianId")
+    int updateTechnicianName(@Param("technicianId") Long technicianId, @Param("name") String name);
+
+    /**
+     * Monta os filtros da listagem de documentos (técnico e admin).
+     *
+     * @param technicianId ID do técnico (null = todos)
+     * @param type         Tipo do documento (null = todos)
+     * @param clientFilter Trecho do nome da empresa (case-insensitive)
+     * @param startDate    Data inicial (inclusiva)
+     * @param endDate      Data final (inclusiva)
+     */
+    static Specification<DocumentIndex> filtered(Long technicianId, DocumentType type, String clientFilter,
+                                                 LocalDate startDate, LocalDate endDate) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (technicianId != null) predicates.add(cb.equal(root.get("technicianId"), technicianId));
+            if (type != null) predicates.add(cb.equal(root.get("documentType"), type));
+            if (clientFilter != null && !clientFilter.isBlank()) {
+                String pattern = "%" + clientFilter.trim().toLowerCase()
+                        .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+                predicates.add(cb.like(cb.lower(root.get("companyName")), pattern, '\\'));
+            }
+            if (startDate != null) predicates.add(cb.greaterThanOrEqualTo(root.get("creationDate"), startDate));
+            if (endDate != null) predicates.add(cb.lessThanOrEqualTo(root.get("creationDate"), endDate));
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Ordena a listagem por data desc com os documentos sem data por último, depois tipo asc e ID desc
+     * para desempate estável. Fica numa Specification porque o Spring Data não aplica NULLS LAST em
+     * consultas por Criteria: use com Pageable sem Sort (a contagem descarta esta ordenação).
+     */
+    static Specification<DocumentIndex> listingOrder() {
+        return (root, query, cb) -> {
+            query.orderBy(listingOrder(root, cb));
+            return null;
+        };
+    }
+
+    /**
+     * Ordem das listagens (ver listingOrder()), também usada pela exportação.
+     */
+    static List<Order> listingOrder(Root<DocumentIndex> root, CriteriaBuilder cb) {
+        HibernateCriteriaBuilder hcb = (HibernateCriteriaBuilder) cb;
+        return List.of(
+                hcb.desc(root.get("creationDate"), false),
+                hcb.asc(root.get("documentType")),
+                hcb.desc(root.get("documentId")));
+    }
+
+    /**
+     * Restringe a listagem aos documentos posicionados depois do cursor informado,
+     * na ordem de listingOrder() (paginação por keyset). Como as datas nulas vêm por último,
+     * depois de um cursor com data ainda vêm todos os documentos sem data, e depois de um
+     * cursor sem data só vêm outros sem data.
+     */
+    static Specification<DocumentIndex> after(DocumentCursor cursor) {
+        return (root, query, cb) -> {
+            Predicate sameDateAfter = cb.or(
+                    cb.greaterThan(root.get("documentType"), cursor.documentType()),
+                    cb.and(
+                            cb.equal(root.get("documentType"), cursor.documentType()),
+                            cb.lessThan(root.get("documentId"), cursor.documentId())));
+
+            if (cursor.creationDate() == null) {
+                return cb.and(cb.isNull(root.get("creationDate")), sameDateAfter);
+            }
+
+            return cb.or(
+                    cb.lessThan(root.get("creationDate"), cursor.creationDate()),
+                    cb.and(cb.equal(root.get("creationDate"), cursor.creationDate()), sameDateAfter),
+                    cb.isNull(root.get("creationDate")));
+        };
+    }
+
+    /**
+     * Documentos de uma empresa (re-renderização em lote).
+     */
+    static Specification<DocumentIndex> ofCompany(Long companyId) {
+        return (root, query, cb) -> companyId == null ? cb.conjunction() : cb.equal(root.get("companyId"), companyId);
+    }
+
+    /**
+     * Documentos com ID (do índice) maior que o checkpoint, para percorrer o filtro em ordem de ID.
+     */
+    static Specification<DocumentIndex> idAfter(Long lastId) {
+        return (root, query, cb) -> lastId == null ? cb.conjunction() : cb.greaterThan(root.get("id"), lastId);
+    }
+}
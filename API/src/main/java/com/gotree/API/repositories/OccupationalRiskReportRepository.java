@@ -1,11 +1,18 @@
 package com.gotree.API.repositories;
 
+import com.gotree.API.dto.document.DocumentSourceDTO;
+import com.gotree.API.dto.document.DocumentTextDTO;
 import com.gotree.API.entities.OccupationalRiskReport;
 import com.gotree.API.entities.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -31,4 +38,43 @@ public interface OccupationalRiskReportRepository extends JpaRepository<Occupati
     // Busca o relatório trazendo junto a Empresa e o Cliente
     @EntityGraph(attributePaths = {"company", "company.client"})
     Optional<OccupationalRiskReport> findById(Long id);
-}
\ No newline at end of file
+
+    /**
+     * Projeção dos checklists para o índice de documentos, em lotes ordenados por ID (keyset).
+     * Empresa e técnico vêm no mesmo SELECT e a assinatura é avaliada no banco.
+     *
+     * @param lastId ID do último checklist do lote anterior (0 para começar)
+     * @param batch  Tamanho do lote (apenas o tamanho da página é usado)
+     */
+    @Query("SELECT new com.gotree.API.dto.document.DocumentSourceDTO(" +
+            "r.id, r.title, c.id, c.name, t.id, t.name, r.inspectionDate, " +
+            "CASE WHEN r.technicianSignatureImageBase64 IS NOT NULL AND r.technicianSignatureImageBase64 <> '' THEN true ELSE false END, " +
+            "r.sentToClientAt, r.pdfPath) " +
+            "FROM OccupationalRiskReport r LEFT JOIN r.company c LEFT JOIN r.technician t " +
+            "WHERE r.id > :lastId ORDER BY r.id")
+    List<DocumentSourceDTO> findIndexSourcesAfter(@Param("lastId") Long lastId, Pageable batch);
+
+    /**
+     * Nomes das funções avaliadas nos checklists informados (texto de busca do índice de documentos).
+     */
+    @Query("SELECT new com.gotree.API.dto.document.DocumentTextDTO(f.report.id, f.functionName) " +
+            "FROM EvaluatedFunction f WHERE f.report.id IN :reportIds")
+    List<DocumentTextDTO> findFunctionNamesByReportIds(@Param("reportIds") Collection<Long> reportIds);
+
+    /**
+     * Grava o PDF gerado e o digest do conteúdo que ele imprime, somente se o digest gravado ainda é o
+     * lido antes da renderização (o checklist não foi editado com outro conteúdo nesse meio tempo).
+     * Altera só essas duas colunas: nada do que foi editado durante a renderização é sobrescrito.
+     *
+     * @return 1 se gravou; 0 se o checklist mudou ou foi excluído nesse meio tempo
+     */
+    @Modifying
+    @Query("UPDATE OccupationalRiskReport r SET r.pdfPath = :pdfPath, r.contentDigest = :contentDigest " +
+            "WHERE r.id = :id AND " +
+            "((:expectedDigest IS NULL AND r.contentDigest IS NULL) OR r.contentDigest = :expectedDigest)")
+    int updatePdfIfDigestUnchanged(@Param("id") Long id, @Param("expectedDigest") String expectedDigest,
+                                   @Param("pdfPath") String pdfPath, @Param("contentDigest") String contentDigest);
+
+    @Query("SELECT r.pdfPath FROM OccupationalRiskReport r WHERE r.id = :id")
+    String findPdfPathById(@Param("id") Long id);
+}
@@ -0,0 +1,14 @@
+package com.gotree.API.repositories;
+
+import com.gotree.API.entities.RerenderJob;
+import com.gotree.API.enums.RerenderJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface RerenderJobRepository extends JpaRepository<RerenderJob, Long> {
+
+    List<RerenderJob> findByStatus(RerenderJobStatus status);
+
+    List<RerenderJob> findAllByOrderByCreatedAtDesc();
+}
@@ -1,8 +1,12 @@
 package com.gotree.API.repositories;
 
+import com.gotree.API.dto.document.DocumentSourceDTO;
+import com.gotree.API.dto.document.DocumentTextDTO;
 import com.gotree.API.entities.TechnicalVisit;
 import com.gotree.API.entities.User;
+import com.gotree.API.enums.PdfStatus;
 import com.gotree.API.enums.Shift;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -10,6 +14,7 @@ import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.time.LocalTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -140,4 +145,47 @@ public interface TechnicalVisitRepository extends JpaRepository<TechnicalVisit,
     // 3. Busca visitas AGENDADAS (FUTURO) no intervalo (Usado para pintar dias futuros no calendário)
     @Query("SELECT v FROM TechnicalVisit v WHERE v.technician = :technician AND v.nextVisitDate BETWEEN :startDate AND :endDate")
     List<TechnicalVisit> findByTechnicianAndNextVisitDateBetween(@Param("technician") User technician, @Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
-}
\ No newline at end of file
+
+    /**
+     * Projeção das visitas para o índice de documentos, em lotes ordenados por ID (keyset).
+     * Empresa e técnico vêm no mesmo SELECT e a assinatura é avaliada no banco.
+     *
+     * @param lastId ID da última visita do lote anterior (0 para começar)
+     * @param batch  Tamanho do lote (apenas o tamanho da página é usado)
+     */
+    @Query("SELECT new com.gotree.API.dto.document.DocumentSourceDTO(" +
+            "v.id, v.title, c.id, c.name, t.id, t.name, v.visitDate, " +
+            "CASE WHEN v.technicianSignatureImageBase64 IS NOT NULL AND v.technicianSignatureImageBase64 <> '' THEN true ELSE false END, " +
+            "v.sentToClientAt, v.pdfPath) " +
+            "FROM TechnicalVisit v LEFT JOIN v.clientCompany c LEFT JOIN v.technician t " +
+            "WHERE v.id > :lastId ORDER BY v.id")
+    List<DocumentSourceDTO> findIndexSourcesAfter(@Param("lastId") Long lastId, Pageable batch);
+
+    /**
+     * Resumos das visitas informadas (texto de busca do índice de documentos).
+     */
+    @Query("SELECT new com.gotree.API.dto.document.DocumentTextDTO(v.id, v.summary) " +
+            "FROM TechnicalVisit v WHERE v.id IN :visitIds")
+    List<DocumentTextDTO> findSummariesByIds(@Param("visitIds") Collection<Long> visitIds);
+
+    /**
+     * Descrições dos achados das visitas informadas (texto de busca do índice de documentos).
+     */
+    @Query("SELECT new com.gotree.API.dto.document.DocumentTextDTO(f.technicalVisit.id, f.description) " +
+            "FROM VisitFinding f WHERE f.technicalVisit.id IN :visitIds")
+    List<DocumentTextDTO> findFindingDescriptionsByVisitIds(@Param("visitIds") Collection<Long> visitIds);
+
+    /**
+     * Carrega a visita com tudo o que o template do PDF usa (empresa, técnico, unidade, setor e achados),
+     * para que a renderização possa acontecer fora da transação.
+     */
+    @EntityGraph(attributePaths = {"clientCompany", "technician", "unit", "sector", "findings"})
+    @Query("SELECT v FROM TechnicalVisit v WHERE v.id = :id")
+    Optional<TechnicalVisit> findForPdfById(@Param("id") Long id);
+
+    /**
+     * IDs das visitas com o PDF na situação informada (ex: PENDING para retomar a fila após reinício).
+     */
+    @Query("SELECT v.id FROM TechnicalVisit v WHERE v.pdfStatus = :status ORDER BY v.id")
+    List<Long> findIdsByPdfStatus(@Param("status") PdfStatus status);
+}
@@ -0,0 +1,36 @@
+package com.gotree.API.seed;
+
+import com.gotree.API.repositories.DocumentIndexRepository;
+import com.gotree.API.services.DocumentIndexService;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.stereotype.Component;
+
+/**
+ * Popula o índice unificado de documentos (tb_document_index) na primeira subida
+ * após a sua criação, a partir das visitas, AEPs e checklists já existentes.
+ * Também reconstrói o índice se houver linhas sem texto de busca (criadas antes da busca textual).
+ */
+@Component
+public class DocumentIndexSeeder implements CommandLineRunner {
+
+    private final DocumentIndexRepository documentIndexRepository;
+    private final DocumentIndexService documentIndexService;
+
+    public DocumentIndexSeeder(DocumentIndexRepository documentIndexRepository,
+                               DocumentIndexService documentIndexService) {
+        this.documentIndexRepository = documentIndexRepository;
+        this.documentIndexService = documentIndexService;
+    }
+
+    @Override
+    public void run(String... args) {
+        // Se o índice já tem registros completos, ele é mantido pelos próprios serviços na escrita
+        if (documentIndexRepository.count() > 0 && !documentIndexRepository.existsBySearchTextIsNull()) {
+            System.out.println(">> Índice de documentos já populado. Pulando seed.");
+            return;
+        }
+
+        long total = documentIndexService.rebuild();
+        System.out.println(">> Índice de documentos populado com " + total + " documentos.");
+    }
+}
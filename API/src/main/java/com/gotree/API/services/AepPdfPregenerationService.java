@@ -0,0 +1,177 @@
+package com.gotree.API.services;
+
+import com.gotree.API.entities.User;
+import com.gotree.API.events.AepPdfRequestedEvent;
+import com.gotree.API.repositories.AepReportRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pré-geração dos PDFs das AEPs em segundo plano.
+ *
+ * Ao salvar uma AEP sem PDF válido (nova ou com conteúdo alterado), a geração entra na fila do
+ * "pdfRenderExecutor" logo após o commit, em vez de acontecer no primeiro download ou envio por
+ * e-mail. Uma varredura periódica cobre o que ficou para trás (fila cheia, falha, reinício da
+ * aplicação ou arquivo apagado do disco).
+ *
+ * Um download que chega enquanto a pré-geração da mesma AEP está em andamento espera por ela
+ * (até app.aep-pdf.await-timeout-ms) em vez de iniciar uma segunda renderização.
+ *
+ * Uma edição salva enquanto a pré-geração da mesma AEP está na fila ou em andamento não é
+ * descartada: ao terminar, a AEP entra de novo na fila e o PDF do conteúdo novo é gerado.
+ */
+@Service
+public class AepPdfPregenerationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AepPdfPregenerationService.class);
+
+    private final AepService aepService;
+    private final AepReportRepository aepReportRepository;
+    private final ExecutorService executor;
+    private final long awaitTimeoutMillis;
+    private final int sweepBatchSize;
+
+    // Pré-gerações agendadas ou em andamento nesta instância, por AEP
+    private final Map<Long, Pregeneration> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * Pré-geração agendada ou em andamento. "rerun" marca uma edição salva depois que ela foi
+     * agendada: a geração pode ter lido o conteúdo anterior, então a AEP volta para a fila ao final.
+     */
+    private static final class Pregeneration {
+        private final CompletableFuture<Path> future = new CompletableFuture<>();
+        private volatile boolean rerun;
+    }
+
+    public AepPdfPregenerationService(AepService aepService,
+                                      AepReportRepository aepReportRepository,
+                                      @Qualifier("pdfRenderExecutor") ExecutorService executor,
+                                      @Value("${app.aep-pdf.await-timeout-ms:30000}") long awaitTimeoutMillis,
+                                      @Value("${app.aep-pdf.sweep-batch-size:100}") int sweepBatchSize) {
+        this.aepService = aepService;
+        this.aepReportRepository = aepReportRepository;
+        this.executor = executor;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+        this.sweepBatchSize = sweepBatchSize;
+    }
+
+    // ===================================================================================
+    // 1. DOWNLOAD / E-MAIL
+    // ===================================================================================
+
+    /**
+     * Devolve o PDF da AEP: espera a pré-geração em andamento, se houver, e segue o caminho normal de
+     * AepService.loadOrGenerateAepPdf (que encontra o PDF recém-gravado, ou gera na requisição se a
+     * pré-geração falhar ou demorar demais).
+     */
+    public Path loadOrGenerate(Long id, User currentUser) {
+        Pregeneration pending = inFlight.get(id);
+        if (pending != null) {
+            try {
+                pending.future.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Geração do PDF da AEP interrompida.", e);
+            } catch (ExecutionException | TimeoutException e) {
+                logger.warn("Pré-geração do PDF da AEP {} indisponível ({}); gerando na requisição.",
+                        id, e instanceof TimeoutException ? "tempo esgotado" : e.getCause().getMessage());
+            }
+        }
+        return aepService.loadOrGenerateAepPdf(id, currentUser);
+    }
+
+    // ===================================================================================
+    // 2. FILA
+    // ===================================================================================
+
+    /**
+     * Só roda após o commit da AEP (se a transação for desfeita, nada é gerado).
+     */
+    @TransactionalEventListener
+    public void onAepPdfRequested(AepPdfRequestedEvent event) {
+        enqueue(event.aepId(), true);
+    }
+
+    /**
+     * Agenda as AEPs sem PDF (pdfPath nulo) e as que apontam para um arquivo que não existe mais.
+     */
+    @Scheduled(initialDelayString = "${app.aep-pdf.sweep-initial-delay-ms:60000}",
+            fixedDelayString = "${app.aep-pdf.sweep-interval-ms:300000}")
+    public void sweep() {
+        int scheduled = 0;
+        for (Long id : aepReportRepository.findIdsWithoutPdf(PageRequest.of(0, sweepBatchSize))) {
+            if (enqueue(id, false)) scheduled++;
+        }
+
+        long lastId = 0;
+        List<AepReportRepository.PdfPathView> batch;
+        do {
+            batch = aepReportRepository.findPdfPathsAfter(lastId, PageRequest.of(0, sweepBatchSize));
+            for (AepReportRepository.PdfPathView view : batch) {
+                if (!Files.exists(Paths.get(view.getPdfPath())) && enqueue(view.getId(), false)) scheduled++;
+                lastId = view.getId();
+            }
+        } while (batch.size() == sweepBatchSize);
+
+        if (scheduled > 0) {
+            logger.info("Varredura de PDFs de AEP: {} geração(ões) agendada(s).", scheduled);
+        }
+    }
+
+    /**
+     * @param afterEdit true quando a AEP acabou de ser salva: se já houver uma pré-geração dela,
+     *                  outra é agendada quando esta terminar
+     * @return true se a geração foi agendada (false se já estava na fila ou a fila está cheia)
+     */
+    private boolean enqueue(Long aepId, boolean afterEdit) {
+        Pregeneration pregeneration = new Pregeneration();
+        // compute e remove são atômicos por AEP: a marcação de "rerun" nunca se perde entre os dois
+        Pregeneration current = inFlight.compute(aepId, (id, existing) -> {
+            if (existing == null) return pregeneration;
+            if (afterEdit) existing.rerun = true;
+            return existing;
+        });
+        if (current != pregeneration) return false;
+
+        try {
+            executor.execute(() -> {
+                try {
+                    pregeneration.future.complete(aepService.pregeneratePdf(aepId));
+                } catch (Exception e) {
+                    logger.warn("Falha na pré-geração do PDF da AEP {}: {}", aepId, e.getMessage());
+                    pregeneration.future.completeExceptionally(e);
+                } finally {
+                    // Depois do commit: quem chegar agora já encontra o pdfPath no banco
+                    inFlight.remove(aepId, pregeneration);
+                    if (pregeneration.rerun) enqueue(aepId, false);
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            // Fila cheia (ou aplicação desligando): a próxima varredura tenta de novo
+            inFlight.remove(aepId, pregeneration);
+            pregeneration.future.cancel(false);
+            logger.warn("Fila de PDFs cheia. PDF da AEP {} fica para a próxima varredura.", aepId);
+            return false;
+        }
+    }
+}
@@ -3,22 +3,27 @@ package com.gotree.API.services;
 import com.gotree.API.dto.aep.AepDetailDTO;
 import com.gotree.API.dto.aep.AepRequestDTO;
 import com.gotree.API.entities.*;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.events.AepPdfRequestedEvent;
 import com.gotree.API.repositories.AepReportRepository;
 import com.gotree.API.repositories.CompanyRepository;
 import com.gotree.API.repositories.PhysiotherapistRepository;
-import com.gotree.API.repositories.SystemInfoRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.UUID;
 
 /**
  * Serviço responsável pelo gerenciamento de Análises Ergonômicas Preliminares (AEP).
@@ -72,17 +77,48 @@ public class AepService {
     private final CompanyRepository companyRepository;
     private final ReportService reportService;
     private final PhysiotherapistRepository physioRepository;
-    private final SystemInfoRepository systemInfoRepository;
-    private final String fileStoragePath = "/app-data/reports/";
+    private final SystemInfoCache systemInfoCache;
+    private final DocumentIndexService documentIndexService;
+    private final PdfRenderCache pdfRenderCache;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PdfSingleFlight pdfSingleFlight;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate pdfTransaction;
+
+    /**
+     * Entradas do PDF lidas numa transação curta: a renderização roda depois, sem transação aberta e
+     * sem entidade gerenciada que um commit possa gravar por cima de uma edição feita nesse meio tempo.
+     * A "aep" de templateData já vem com as associações exibidas no template carregadas.
+     *
+     * @param pdfPath      Caminho gravado na AEP na leitura
+     * @param templateData Dados do template; null quando o PDF gravado já é o atual
+     */
+    private record PdfInput(Long id, String pdfPath, String renderDigest, Map<String, Object> templateData) {
+
+        boolean isCurrent() {
+            return templateData == null;
+        }
+    }
 
     public AepService(AepReportRepository aepReportRepository, CompanyRepository companyRepository,
                       ReportService reportService, PhysiotherapistRepository physioRepository,
-                      SystemInfoRepository systemInfoRepository) {
+                      SystemInfoCache systemInfoCache, DocumentIndexService documentIndexService,
+                      PdfRenderCache pdfRenderCache, ApplicationEventPublisher eventPublisher,
+                      PdfSingleFlight pdfSingleFlight, PlatformTransactionManager transactionManager) {
         this.aepReportRepository = aepReportRepository;
         this.companyRepository = companyRepository;
         this.reportService = reportService;
         this.physioRepository = physioRepository;
-        this.systemInfoRepository = systemInfoRepository;
+        this.systemInfoCache = systemInfoCache;
+        this.documentIndexService = documentIndexService;
+        this.pdfRenderCache = pdfRenderCache;
+        this.eventPublisher = eventPublisher;
+        this.pdfSingleFlight = pdfSingleFlight;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Transação própria e curta para o pdfPath: vale mesmo quando o download roda em transação somente leitura
+        this.pdfTransaction = new TransactionTemplate(transactionManager);
+        this.pdfTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
 
@@ -127,53 +163,178 @@ public class AepService {
         // Dados da Fisio
         aep.setPhysiotherapist(physio);
 
-        // Se o documento foi editado, limpa o caminho do PDF antigo
-        if (existingId != null && aep.getPdfPath() != null) {
+        // Se o documento foi editado, descarta o PDF antigo apenas se algo que aparece nele mudou
+        // (uma edição sem alterações continua usando o mesmo arquivo do cache de PDFs)
+        if (existingId != null && aep.getPdfPath() != null
+                && !pdfRenderCache.isCurrent(aep.getPdfPath(), renderDigest(aep))) {
             deletePdfFile(aep.getPdfPath()); // Deleta o arquivo físico
             aep.setPdfPath(null); // Limpa o caminho no banco
         }
 
-        return aepReportRepository.save(aep);
+        AepReport savedAep = aepReportRepository.save(aep);
+        documentIndexService.indexAep(savedAep);
+
+        // Sem PDF válido: gera em segundo plano após o commit, antes que alguém peça o download
+        if (savedAep.getPdfPath() == null) {
+            eventPublisher.publishEvent(new AepPdfRequestedEvent(savedAep.getId()));
+        }
+        return savedAep;
     }
 
 
     /**
      * Carrega um PDF existente ou gera um novo PDF para uma AEP.
+     * O PDF gravado só é devolvido se corresponder ao conteúdo atual da AEP (digest): um caminho
+     * gravado por uma geração que leu a AEP antes de uma edição é regerado aqui.
      *
      * @param id          ID da AEP
      * @param currentUser Usuário atual solicitando o PDF
-     * @return array de bytes contendo o PDF
-     * @throws IOException      em caso de erro na manipulação do arquivo
+     * @return caminho do PDF em disco (quem chama faz o streaming, sem carregar o arquivo na memória)
      * @throws RuntimeException se a AEP não for encontrada
      */
-    @Transactional
-    public byte[] loadOrGenerateAepPdf(Long id, User currentUser) throws IOException {
-        AepReport aep = aepReportRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("AEP com ID " + id + " não encontrada."));
+    public Path loadOrGenerateAepPdf(Long id, User currentUser) {
+        PdfInput input = requirePdfInput(id);
+
+        // Se o PDF do conteúdo atual já foi gerado e salvo, apenas o retorna
+        if (input.isCurrent()) return Paths.get(input.pdfPath());
+
+        // Se o PDF não existe (novo, editado ou apagado do disco), GERA UM NOVO
+        Path path = renderPdf(id, input, false);
+        if (path == null) throw new RuntimeException("AEP com ID " + id + " não encontrada.");
+        return path;
+    }
+
+    /**
+     * Gera o PDF da AEP em segundo plano (pré-geração após salvar ou varredura de pendentes).
+     * Espera vaga na geração em vez de receber 429.
+     *
+     * @return caminho do PDF atual, ou null se a AEP foi excluída antes da geração
+     */
+    public Path pregeneratePdf(Long id) {
+        PdfInput input = readPdfInput(id);
+        if (input == null) return null;
+        if (input.isCurrent()) return Paths.get(input.pdfPath());
+        return renderPdf(id, input, true);
+    }
+
+    /**
+     * Regera o PDF da AEP se ele não corresponder mais ao template/dados atuais
+     * (usado pela re-renderização em lote; espera vaga na geração em vez de receber 429).
+     *
+     * @return true se um novo PDF foi gerado
+     */
+    public boolean refreshPdf(Long id) {
+        PdfInput input = requirePdfInput(id);
+        if (input.isCurrent()) return false;
+        return renderPdf(id, input, true) != null;
+    }
+
+    /**
+     * Gera (ou reaproveita do cache) o PDF da AEP e grava o caminho no relatório.
+     * Chamadas simultâneas para a mesma AEP compartilham uma única geração (PdfSingleFlight). Quem
+     * esperou uma geração iniciada com outra leitura da AEP confere o PDF recebido e, se ele não
+     * corresponder ao conteúdo atual (edição nesse meio tempo), gera de novo.
+     *
+     * @param background true quando chamado por uma tarefa em segundo plano
+     * @return caminho do PDF gravado, ou null se a AEP foi excluída
+     * @throws IllegalStateException se a AEP mudou também durante a segunda geração
+     */
+    private Path renderPdf(Long id, PdfInput input, boolean background) {
+        Path path = pdfSingleFlight.run(DocumentType.AEP, id, () -> renderLatest(id, input, background));
+        if (path == null || pdfRenderCache.isCurrent(path.toString(), input.renderDigest())) return path;
+
+        PdfInput latest = readPdfInput(id);
+        if (latest == null) return null;
+        if (latest.isCurrent()) return Paths.get(latest.pdfPath());
+        return pdfSingleFlight.run(DocumentType.AEP, id, () -> renderLatest(id, latest, background));
+    }
+
+    /**
+     * Gera e grava o PDF das entradas lidas; se a AEP for editada durante a geração, gera mais uma
+     * vez com o conteúdo novo.
+     */
+    private Path renderLatest(Long id, PdfInput input, boolean background) {
+        Path path = renderAndStore(input, background);
+        if (path != null) return path;
+
+        PdfInput latest = readPdfInput(id);
+        if (latest == null) return null;
+        if (latest.isCurrent()) return Paths.get(latest.pdfPath());
+        path = renderAndStore(latest, background);
+        if (path == null && aepReportRepository.existsById(id)) {
+            throw new IllegalStateException("A AEP foi alterada durante a geração do PDF. Tente novamente.");
+        }
+        return path;
+    }
+
+    private PdfInput requirePdfInput(Long id) {
+        PdfInput input = readPdfInput(id);
+        if (input == null) throw new RuntimeException("AEP com ID " + id + " não encontrada.");
+        return input;
+    }
+
+    /**
+     * Lê as entradas do PDF numa transação curta somente leitura.
+     *
+     * @return entradas do PDF, ou null se a AEP não existe
+     */
+    private PdfInput readPdfInput(Long id) {
+        return readOnlyTransaction.execute(status -> aepReportRepository.findById(id)
+                .map(aep -> {
+                    // O digest lê todos os campos exibidos no template: as associações LAZY ficam carregadas
+                    String renderDigest = renderDigest(aep);
+                    if (pdfRenderCache.isCurrent(aep.getPdfPath(), renderDigest)) {
+                        return new PdfInput(id, aep.getPdfPath(), renderDigest, null);
+                    }
+                    return new PdfInput(id, aep.getPdfPath(), renderDigest, templateData(aep));
+                })
+                .orElse(null));
+    }
 
-        // Se o PDF já foi gerado e salvo, apenas o retorna
-        if (aep.getPdfPath() != null && !aep.getPdfPath().isBlank()) {
-            try {
-                Path path = Paths.get(aep.getPdfPath());
-                if (Files.exists(path)) {
-                    return Files.readAllBytes(path);
-                }
-            } catch (Exception e) {
-                // Se o arquivo não existir (ex: foi apagado do disco), geramos um novo
+    /**
+     * Renderiza fora de transação e grava o caminho em transação própria, somente se a AEP ainda
+     * tem o conteúdo renderizado e ninguém gravou outro PDF desde a leitura.
+     *
+     * @return caminho do PDF gravado, ou null se a AEP mudou ou foi excluída (o arquivo gerado é descartado)
+     */
+    private Path renderAndStore(PdfInput input, boolean background) {
+        // Mesmas entradas = mesmo arquivo: só renderiza se o digest ainda não estiver no cache
+        Path path = pdfRenderCache.getOrRender(input.renderDigest(),
+                target -> reportService.renderPdfToFile("aep-template", input.templateData(), target, background));
+        String newPath = path.toString();
+
+        String currentPath = pdfTransaction.execute(status -> {
+            AepReport aep = aepReportRepository.findById(input.id()).orElse(null);
+            if (aep == null) return null;
+            if (!renderDigest(aep).equals(input.renderDigest())
+                    || aepReportRepository.updatePdfPathIfUnchanged(input.id(), input.pdfPath(), newPath) == 0) {
+                return aep.getPdfPath();
             }
+            // O UPDATE limpa o contexto de persistência: a AEP é lida de novo, já com o caminho novo
+            aepReportRepository.findById(input.id()).ifPresent(documentIndexService::indexAep);
+            return newPath;
+        });
+
+        if (newPath.equals(currentPath)) {
+            pdfRenderCache.deleteReplaced(input.pdfPath(), path);
+            return path;
         }
+        pdfRenderCache.deleteReplaced(newPath, currentPath != null ? Paths.get(currentPath).toAbsolutePath() : null);
+        return null;
+    }
 
-        // Se o PDF não existe (novo ou editado), GERA UM NOVO
+    private Map<String, Object> templateData(AepReport aep) {
         Map<String, Object> templateData = new HashMap<>();
         templateData.put("aep", aep);
+        templateData.put(ReportService.DOCUMENT_ID, aep.getId());
         templateData.put("company", aep.getCompany());
         templateData.put("evaluator", aep.getEvaluator());
 
-        // Busca dados da empresa do banco de dados
-        SystemInfo sysInfo = systemInfoRepository.findFirst();
-        if (sysInfo != null) {
-            templateData.put("generatingCompanyName", sysInfo.getCompanyName());
-            templateData.put("generatingCompanyCnpj", sysInfo.getCnpj());
+        // Dados da empresa emissora (snapshot em memória do SystemInfo)
+        SystemInfoCache.Snapshot sysInfo = systemInfoCache.get();
+        if (sysInfo.fromDatabase()) {
+            templateData.put("generatingCompanyName", sysInfo.companyName());
+            templateData.put("generatingCompanyCnpj", sysInfo.cnpj());
         } else {
             // Fallback para valores padrão se não encontrar no banco
             templateData.put("generatingCompanyName", "Go-Tree Consultoria LTDA");
@@ -182,19 +343,35 @@ public class AepService {
 
         templateData.put("allRisks", MASTER_RISK_LIST);
         templateData.put("selectedRisks", aep.getSelectedRisks());
+        return templateData;
+    }
 
-        byte[] pdfBytes = reportService.generatePdfFromHtml("aep-template", templateData);
-
-        // Salva o novo PDF no disco e atualiza a entidade
-        String fileName = "AEP_" + aep.getId() + "_" + UUID.randomUUID() + ".pdf";
-        Path path = Paths.get(fileStoragePath, fileName);
-        Files.createDirectories(path.getParent());
-        Files.write(path, pdfBytes);
-
-        aep.setPdfPath(path.toString()); // Salva o caminho do NOVO PDF
-        aepReportRepository.save(aep);
-
-        return pdfBytes;
+    /**
+     * Digest das entradas do PDF da AEP: os campos que o template "aep-template" exibe.
+     * Os dados da empresa emissora (SystemInfo) entram pelo próprio PdfRenderCache.
+     */
+    private String renderDigest(AepReport aep) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("id", aep.getId());
+        model.put("evaluationDate", aep.getEvaluationDate());
+        model.put("evaluatedFunction", aep.getEvaluatedFunction());
+        if (aep.getCompany() != null) {
+            model.put("companyName", aep.getCompany().getName());
+            model.put("companyCnpj", aep.getCompany().getCnpj());
+        }
+        if (aep.getEvaluator() != null) {
+            model.put("evaluatorName", aep.getEvaluator().getName());
+            model.put("evaluatorConselhoClasse", aep.getEvaluator().getConselhoClasse());
+            model.put("evaluatorSiglaConselhoClasse", aep.getEvaluator().getSiglaConselhoClasse());
+            model.put("evaluatorEspecialidade", aep.getEvaluator().getEspecialidade());
+        }
+        if (aep.getPhysiotherapist() != null) {
+            model.put("physiotherapistName", aep.getPhysiotherapist().getName());
+            model.put("physiotherapistCrefito", aep.getPhysiotherapist().getCrefito());
+        }
+        model.put("selectedRisks", aep.getSelectedRisks() != null ? new ArrayList<>(aep.getSelectedRisks()) : List.of());
+        model.put("allRisks", MASTER_RISK_LIST);
+        return pdfRenderCache.digest("aep-template", model);
     }
 
     /**
@@ -260,6 +437,7 @@ public class AepService {
         }
 
         aepReportRepository.delete(aep);
+        documentIndexService.remove(DocumentType.AEP, id);
     }
 
     /**
@@ -0,0 +1,144 @@
+package com.gotree.API.services;
+
+import com.lowagie.text.Image;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xhtmlrenderer.pdf.ITextFSImage;
+import org.xhtmlrenderer.pdf.ITextOutputDevice;
+import org.xhtmlrenderer.pdf.ITextUserAgent;
+import org.xhtmlrenderer.resource.ImageResource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * UserAgent do Flying Saucer que busca as imagens no PdfImageCache em vez de decodificar a cada PDF.
+ *
+ * Trata as duas formas usadas nos templates: fotos dos achados ("file:///...") e imagens embutidas
+ * ("data:image/...;base64,..." — logo e assinaturas). Qualquer outra URI segue o comportamento padrão.
+ * Cada PDF recebe uma cópia da imagem, porque o renderizador altera a escala ao posicioná-la.
+ * Imagens já decodificadas por quem monta o PDF (a logo do SystemInfoCache) são registradas com
+ * preload e encontradas pela URI, sem hash nem decodificação do data URI.
+ *
+ * Os templates usam CSS embutido (&lt;style&gt;), que faz parte do próprio documento; não há
+ * folhas de estilo externas para cachear.
+ */
+public class CachingUserAgent extends ITextUserAgent {
+
+    private static final Logger logger = LoggerFactory.getLogger(CachingUserAgent.class);
+
+    private record Preloaded(String key, byte[] bytes) {
+    }
+
+    private final PdfImageCache imageCache;
+
+    // URI exata usada no template -> chave no PdfImageCache e bytes já decodificados
+    private final Map<String, Preloaded> preloaded = new HashMap<>();
+
+    // Bytes de origem das imagens usadas neste PDF (métrica pdf.render.image.bytes)
+    private long imageBytes;
+
+    public CachingUserAgent(ITextOutputDevice outputDevice, PdfImageCache imageCache) {
+        super(outputDevice);
+        this.imageCache = imageCache;
+    }
+
+    /**
+     * Registra uma imagem cujos bytes já estão decodificados, para a URI com que ela aparece no template.
+     *
+     * @param key Chave estável no PdfImageCache (ex: fingerprint do SystemInfo)
+     */
+    public void preload(String uri, String key, byte[] bytes) {
+        preloaded.put(uri, new Preloaded(key, bytes));
+    }
+
+    @Override
+    public ImageResource getImageResource(String uri) {
+        if (uri == null) return super.getImageResource(uri);
+        try {
+            Image image;
+            if (uri.startsWith("data:")) {
+                image = fromDataUri(uri);
+            } else if (uri.startsWith("file:")) {
+                image = fromFile(uri);
+            } else {
+                return super.getImageResource(uri);
+            }
+            if (image == null) return super.getImageResource(uri);
+            return new ImageResource(uri, new ITextFSImage(Image.getInstance(image)));
+        } catch (Exception e) {
+            // Arquivo ausente ou imagem inválida: o PDF sai sem a imagem, como no UserAgent padrão
+            logger.warn("Imagem não carregada no PDF: {} ({})", abbreviate(uri), e.getMessage());
+            return new ImageResource(uri, null);
+        }
+    }
+
+    private Image fromDataUri(String uri) {
+        Preloaded known = preloaded.get(uri);
+        if (known != null) {
+            imageBytes += known.bytes().length;
+            return imageCache.get(known.key(), known::bytes, this::decode);
+        }
+
+        int comma = uri.indexOf(',');
+        if (comma < 0 || !uri.substring(0, comma).endsWith(";base64")) return null;
+        String data = uri.substring(comma + 1);
+        if (data.isBlank() || "null".equals(data)) return null; // template montou a URI sem imagem
+
+        imageBytes += data.length() * 3L / 4; // tamanho aproximado depois de decodificar o Base64
+        return imageCache.get(PdfImageCache.dataUriKey(uri),
+                () -> Base64.getMimeDecoder().decode(data),
+                this::decode);
+    }
+
+    private Image fromFile(String uri) throws IOException {
+        // "file:///" + caminho absoluto gera barras duplicadas; o Path normaliza
+        Path path = Paths.get(URI.create(uri).getPath());
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        String key = "file:" + path + "@" + attributes.lastModifiedTime().toMillis() + ":" + attributes.size();
+        imageBytes += attributes.size();
+
+        return imageCache.get(key, () -> {
+            try {
+                return Files.readAllBytes(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, this::decode);
+    }
+
+    /**
+     * Total de bytes das imagens solicitadas pelo documento (vindas do cache ou não).
+     */
+    public long getImageBytes() {
+        return imageBytes;
+    }
+
+    /**
+     * Decodifica e aplica a escala de saída do renderizador (a mesma do ITextUserAgent).
+     */
+    private Image decode(byte[] bytes) {
+        try {
+            Image image = Image.getInstance(bytes);
+            float factor = getSharedContext().getDotsPerPixel();
+            if (factor != 1.0f) {
+                image.scaleAbsolute(image.getPlainWidth() * factor, image.getPlainHeight() * factor);
+            }
+            return image;
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Imagem inválida: " + e.getMessage(), e);
+        }
+    }
+
+    private String abbreviate(String uri) {
+        return uri.length() > 80 ? uri.substring(0, 80) + "..." : uri;
+    }
+}
@@ -39,6 +39,7 @@ public class CompanyService {
     private final AepReportRepository aepReportRepository;
     private final TechnicalVisitRepository technicalVisitRepository;
     private final JobRoleRepository jobRoleRepository;
+    private final DocumentIndexService documentIndexService;
 
     /**
      * Construtor do serviço de empresas.
@@ -49,12 +50,14 @@ public class CompanyService {
                           OccupationalRiskReportRepository riskReportRepository,
                           AepReportRepository aepReportRepository,
                           TechnicalVisitRepository technicalVisitRepository,
-                          JobRoleRepository jobRoleRepository) {
+                          JobRoleRepository jobRoleRepository,
+                          DocumentIndexService documentIndexService) {
         this.companyRepository = companyRepository;
         this.riskReportRepository = riskReportRepository;
         this.aepReportRepository = aepReportRepository;
         this.technicalVisitRepository = technicalVisitRepository;
         this.jobRoleRepository = jobRoleRepository;
+        this.documentIndexService = documentIndexService;
     }
 
     /**
@@ -183,7 +186,11 @@ public class CompanyService {
 
         // 5. Salva as alterações
         // O @Transactional já faria o commit, mas o save() é explícito
-        return companyRepository.save(company);
+        Company savedCompany = companyRepository.save(company);
+
+        // 6. Propaga o nome para o índice de documentos
+        documentIndexService.renameCompany(savedCompany.getId(), savedCompany.getName());
+        return savedCompany;
     }
 
     // --- MÉTODOS PRIVADOS (HELPERS) ---
@@ -4,7 +4,6 @@ import com.gotree.API.dto.dashboard.AdminStatsDTO;
 import com.gotree.API.dto.dashboard.CompanyCountDTO;
 import com.gotree.API.dto.dashboard.MyStatsDTO;
 import com.gotree.API.dto.dashboard.UserDocumentStatsDTO;
-import com.gotree.API.dto.document.DocumentSummaryDTO;
 import com.gotree.API.entities.User;
 import com.gotree.API.repositories.AepReportRepository;
 import com.gotree.API.repositories.CompanyRepository;
@@ -15,7 +14,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
-import java.util.Map;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,11 +28,15 @@ public class DashboardService {
     private final OccupationalRiskReportRepository occupationalRiskReportRepository;
     private final DocumentAggregationService documentAggregationService;
     private final UserService userService;
+    private final QueryFanOutService queryFanOutService;
+    private final DocumentCacheService documentCacheService;
 
     public DashboardService(UserRepository userRepository, CompanyRepository companyRepository,
                             TechnicalVisitRepository technicalVisitRepository, AepReportRepository aepReportRepository,
                             DocumentAggregationService documentAggregationService, UserService userService,
-                            OccupationalRiskReportRepository occupationalRiskReportRepository) {
+                            OccupationalRiskReportRepository occupationalRiskReportRepository,
+                            QueryFanOutService queryFanOutService,
+                            DocumentCacheService documentCacheService) {
         this.userRepository = userRepository;
         this.companyRepository = companyRepository;
         this.technicalVisitRepository = technicalVisitRepository;
@@ -41,38 +44,53 @@ public class DashboardService {
         this.documentAggregationService = documentAggregationService;
         this.userService = userService;
         this.occupationalRiskReportRepository = occupationalRiskReportRepository;
+        this.queryFanOutService = queryFanOutService;
+        this.documentCacheService = documentCacheService;
     }
 
     /**
      * Retorna os KPIs do usuário logado.
+     * As contagens são independentes e rodam em paralelo (cada uma em sua própria transação
+     * somente leitura), então o tempo de resposta fica próximo ao da consulta mais lenta.
+     * O resultado fica no cache de documentos até a próxima alteração de um documento do técnico.
      */
-    @Transactional(readOnly = true)
     public MyStatsDTO getMyStats(User user) {
-        long totalVisits = technicalVisitRepository.countByTechnician(user);
-        long totalAeps = aepReportRepository.countByEvaluator(user);
+        return documentCacheService.get(user.getId(), "my-stats", () -> computeMyStats(user));
+    }
+
+    private MyStatsDTO computeMyStats(User user) {
+        Supplier<Long> visitsCount;
+        Supplier<Long> aepsCount;
+        Supplier<Long> risksCount;
+        Supplier<Long> visitSeconds;
+        Supplier<List<CompanyCountDTO>> topCompaniesQuery;
+
+        try (QueryFanOutService.FanOut fanOut = queryFanOutService.open("dashboard.my-stats")) {
+            visitsCount = fanOut.fork(() -> technicalVisitRepository.countByTechnician(user));
+            aepsCount = fanOut.fork(() -> aepReportRepository.countByEvaluator(user));
+
+            // (CORREÇÃO 2: Adicionado contagem de Riscos para o usuário)
+            risksCount = fanOut.fork(() -> occupationalRiskReportRepository.countByTechnician(user));
+
+            visitSeconds = fanOut.fork(() -> technicalVisitRepository.findTotalVisitDurationInSeconds(user.getId()));
 
-        // (CORREÇÃO 2: Adicionado contagem de Riscos para o usuário)
-        long totalRisks = occupationalRiskReportRepository.countByTechnician(user);
+            // Top 5 de Empresas (agrupado no índice de documentos)
+            topCompaniesQuery = fanOut.fork(() -> documentAggregationService.findTopCompaniesForUser(user, 5));
+
+            fanOut.join();
+        }
+
+        long totalVisits = visitsCount.get();
+        long totalAeps = aepsCount.get();
+        long totalRisks = risksCount.get();
+        List<CompanyCountDTO> topCompanies = topCompaniesQuery.get();
 
         // Calcula o tempo (Lógica de horas/minutos)
-        long totalSeconds = technicalVisitRepository.findTotalVisitDurationInSeconds(user.getId());
+        long totalSeconds = visitSeconds.get();
         long totalMinutes = totalSeconds / 60;
         long hours = totalMinutes / 60;
         long remainingMinutes = totalMinutes % 60;
 
-        // Calcula o Top 5 de Empresas
-        List<DocumentSummaryDTO> myDocuments = documentAggregationService.findAllDocumentsListForUser(user);
-
-        Map<String, Long> companyCounts = myDocuments.stream()
-                .filter(doc -> doc.getClientName() != null && !doc.getClientName().equals("N/A"))
-                .collect(Collectors.groupingBy(DocumentSummaryDTO::getClientName, Collectors.counting()));
-
-        List<CompanyCountDTO> topCompanies = companyCounts.entrySet().stream()
-                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
-                .limit(5)
-                .map(entry -> new CompanyCountDTO(entry.getKey(), entry.getValue()))
-                .collect(Collectors.toList());
-
         MyStatsDTO stats = new MyStatsDTO();
         stats.setTotalVisits(totalVisits);
         stats.setTotalAeps(totalAeps);
@@ -1,14 +1,24 @@
 package com.gotree.API.services;
 
+import com.gotree.API.dto.dashboard.CompanyCountDTO;
+import com.gotree.API.dto.document.DocumentCursorPageDTO;
 import com.gotree.API.dto.document.DocumentSummaryDTO;
 import com.gotree.API.dto.document.FileDownloadDTO;
 import com.gotree.API.entities.*;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.enums.PdfStatus;
+import com.gotree.API.exceptions.PdfNotReadyException;
+import com.gotree.API.exceptions.ResourceNotFoundException;
 import com.gotree.API.repositories.*;
+import com.gotree.API.utils.DocumentCursor;
+import com.gotree.API.utils.SearchTextNormalizer;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,21 +29,43 @@ import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Collections;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @Service
 public class DocumentAggregationService {
 
+    // Mesma ordem de DocumentIndexRepository.listingOrder() para os documentos com data,
+    // usada no merge em memória (o tipo é comparado pelo nome, como no banco)
+    private static final Comparator<DocumentIndex> LATEST_ORDER = Comparator
+            .comparing(DocumentIndex::getCreationDate, Comparator.reverseOrder())
+            .thenComparing(entry -> entry.getDocumentType().name())
+            .thenComparing(DocumentIndex::getDocumentId, Comparator.reverseOrder());
+
+    private static final int LATEST_LIMIT = 5;
+    private static final int MIN_SEARCH_LENGTH = 2;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    // Sugestão de espera (Retry-After) enquanto o PDF da visita está na fila de geração
+    private static final long PDF_PENDING_RETRY_AFTER_SECONDS = 5;
+
     private final TechnicalVisitRepository technicalVisitRepository;
     private final TechnicalVisitService technicalVisitService;
     private final AepService aepService;
     private final AepReportRepository aepReportRepository;
     private final RiskChecklistService riskChecklistService;
     private final OccupationalRiskReportRepository riskReportRepository;
+    private final DocumentIndexRepository documentIndexRepository;
+    private final ClientRepository clientRepository;
+    private final QueryFanOutService queryFanOutService;
+    private final DocumentCacheService documentCacheService;
+    private final AepPdfPregenerationService aepPdfPregenerationService;
 
     @Value("${file.storage.path}")
     private String fileStoragePath;
@@ -41,205 +73,322 @@ public class DocumentAggregationService {
     public DocumentAggregationService(TechnicalVisitRepository technicalVisitRepository,
                                       TechnicalVisitService technicalVisitService,
                                       AepService aepService, AepReportRepository aepReportRepository,
-                                      RiskChecklistService riskChecklistService, OccupationalRiskReportRepository riskReportRepository) {
+                                      RiskChecklistService riskChecklistService, OccupationalRiskReportRepository riskReportRepository,
+                                      DocumentIndexRepository documentIndexRepository, ClientRepository clientRepository,
+                                      QueryFanOutService queryFanOutService, DocumentCacheService documentCacheService,
+                                      AepPdfPregenerationService aepPdfPregenerationService) {
         this.technicalVisitRepository = technicalVisitRepository;
         this.technicalVisitService = technicalVisitService;
         this.aepService = aepService;
         this.aepReportRepository = aepReportRepository;
         this.riskChecklistService = riskChecklistService;
         this.riskReportRepository = riskReportRepository;
+        this.documentIndexRepository = documentIndexRepository;
+        this.clientRepository = clientRepository;
+        this.queryFanOutService = queryFanOutService;
+        this.documentCacheService = documentCacheService;
+        this.aepPdfPregenerationService = aepPdfPregenerationService;
     }
 
     // ===================================================================================
     // 1. MÉTODOS PÚBLICOS (ENTRADA)
     // ===================================================================================
 
+    // Os métodos de listagem abaixo não são @Transactional: o cache é consultado antes e,
+    // em caso de acerto, nenhuma conexão é aberta. Cada consulta ao índice tem sua própria transação.
+
     /**
      * TÉCNICO: Recupera documentos COM filtros e paginação.
      */
-    @Transactional(readOnly = true)
     public Page<DocumentSummaryDTO> findAllDocumentsForUser(
             User technician,
             String typeFilter, String clientFilter,
             LocalDate startDate, LocalDate endDate,
             Pageable pageable
     ) {
-        // 1. Busca dados específicos do técnico
-        List<DocumentSummaryDTO> rawDocs = fetchRawDocumentsByTechnician(technician);
-
-        // 2. Aplica a lógica comum de filtro/paginação
-        return processDocumentList(rawDocs, typeFilter, clientFilter, startDate, endDate, pageable);
+        return documentCacheService.get(technician.getId(), "page",
+                () -> findPage(technician.getId(), typeFilter, clientFilter, startDate, endDate, pageable),
+                typeFilter, clientFilter, startDate, endDate, pageable);
     }
 
     /**
      * ADMIN: Recupera TODOS os documentos do sistema, com filtros e paginação.
      */
-    @Transactional(readOnly = true)
     public Page<DocumentSummaryDTO> findAllDocumentsGlobal(
             String typeFilter, String clientFilter,
             LocalDate startDate, LocalDate endDate,
             Pageable pageable
     ) {
-        // 1. Busca dados globais
-        List<DocumentSummaryDTO> rawDocs = fetchRawDocumentsGlobal();
+        // Mesma consulta do técnico, sem restringir o técnico
+        return documentCacheService.get(null, "page",
+                () -> findPage(null, typeFilter, clientFilter, startDate, endDate, pageable),
+                typeFilter, clientFilter, startDate, endDate, pageable);
+    }
 
-        // 2. Aplica a MESMA lógica comum
-        return processDocumentList(rawDocs, typeFilter, clientFilter, startDate, endDate, pageable);
+    /**
+     * TÉCNICO: Listagem por cursor (rolagem infinita), com os mesmos filtros da listagem paginada.
+     */
+    public DocumentCursorPageDTO findDocumentsForUserAfter(
+            User technician,
+            String typeFilter, String clientFilter,
+            LocalDate startDate, LocalDate endDate,
+            String after, int size, boolean includeTotal
+    ) {
+        return documentCacheService.get(technician.getId(), "cursor",
+                () -> findAfter(technician.getId(), typeFilter, clientFilter, startDate, endDate, after, size, includeTotal),
+                typeFilter, clientFilter, startDate, endDate, after, size, includeTotal);
     }
 
     /**
-     * DASHBOARD: Retorna a LISTA COMPLETA ordenada (sem paginação).
+     * ADMIN: Listagem por cursor de todos os documentos do sistema.
+     */
+    public DocumentCursorPageDTO findDocumentsGlobalAfter(
+            String typeFilter, String clientFilter,
+            LocalDate startDate, LocalDate endDate,
+            String after, int size, boolean includeTotal
+    ) {
+        return documentCacheService.get(null, "cursor",
+                () -> findAfter(null, typeFilter, clientFilter, startDate, endDate, after, size, includeTotal),
+                typeFilter, clientFilter, startDate, endDate, after, size, includeTotal);
+    }
+
+    /**
+     * TÉCNICO: Busca textual nos documentos do usuário (título, resumo e achados da visita,
+     * função da AEP, título e funções do checklist), ordenada por relevância.
      */
     @Transactional(readOnly = true)
-    public List<DocumentSummaryDTO> findAllDocumentsListForUser(User technician) {
-        List<DocumentSummaryDTO> docs = fetchRawDocumentsByTechnician(technician);
-        // Apenas ordena
-        docs.sort(Comparator.comparing(DocumentSummaryDTO::getCreationDate, Comparator.nullsLast(Comparator.reverseOrder())));
-        return docs;
+    public Page<DocumentSummaryDTO> searchDocumentsForUser(User technician, String query, Pageable pageable) {
+        return search(technician.getId(), query, pageable);
     }
 
     /**
-     * WIDGET: Recupera os 5 mais recentes.
+     * ADMIN: Busca textual em todos os documentos do sistema.
      */
     @Transactional(readOnly = true)
-    public List<DocumentSummaryDTO> findLatestDocumentsForUser(User technician) {
-        List<DocumentSummaryDTO> docs = fetchRawDocumentsByTechnician(technician);
-        docs.sort(Comparator.comparing(DocumentSummaryDTO::getCreationDate, Comparator.nullsLast(Comparator.reverseOrder())));
-        return docs.stream().limit(5).collect(Collectors.toList());
+    public Page<DocumentSummaryDTO> searchDocumentsGlobal(String query, Pageable pageable) {
+        return search(null, query, pageable);
     }
 
+    /**
+     * DASHBOARD: Empresas com mais documentos do técnico (agrupado pelo banco).
+     */
     @Transactional(readOnly = true)
+    public List<CompanyCountDTO> findTopCompaniesForUser(User technician, int limit) {
+        return documentIndexRepository.countByCompanyForTechnician(technician.getId(), PageRequest.of(0, limit));
+    }
+
+    /**
+     * WIDGET: Recupera os 5 mais recentes.
+     * Sem @Transactional: as consultas por tipo rodam em paralelo, cada uma com sua própria
+     * transação; uma transação aqui só prenderia mais uma conexão ociosa durante a espera.
+     */
+    public List<DocumentSummaryDTO> findLatestDocumentsForUser(User technician) {
+        return documentCacheService.get(technician.getId(), "latest",
+                () -> toSummaries(findLatest(technician.getId(), LATEST_LIMIT)));
+    }
+
     public List<DocumentSummaryDTO> findAllLatestDocumentsForAdmin() {
-        List<DocumentSummaryDTO> docs = fetchRawDocumentsGlobal();
-        docs.sort(Comparator.comparing(DocumentSummaryDTO::getCreationDate, Comparator.nullsLast(Comparator.reverseOrder())));
-        return docs.stream().limit(5).collect(Collectors.toList());
+        return documentCacheService.get(null, "latest",
+                () -> toSummaries(findLatest(null, LATEST_LIMIT)));
     }
 
     // ===================================================================================
-    // 2. FETCHERS (Busca de Dados Brutos)
+    // 2. LEITURA DO ÍNDICE
     // ===================================================================================
 
-    private List<DocumentSummaryDTO> fetchRawDocumentsByTechnician(User technician) {
-        List<DocumentSummaryDTO> visits = technicalVisitRepository.findAllWithCompanyByTechnician(technician)
-                .stream().map(this::mapVisitToSummaryDto).toList();
-
-        List<DocumentSummaryDTO> aeps = aepReportRepository.findAllByEvaluator(technician)
-                .stream().map(this::mapAepToSummaryDto).toList();
+    private Page<DocumentSummaryDTO> findPage(Long technicianId, String typeFilter, String clientFilter,
+                                              LocalDate startDate, LocalDate endDate, Pageable pageable) {
+        DocumentType type = null;
+        if (typeFilter != null && !typeFilter.isBlank()) {
+            type = DocumentType.fromCode(typeFilter.trim());
+            // Tipo informado não corresponde a nenhum documento conhecido
+            if (type == null) return Page.empty(pageable);
+        }
 
-        List<DocumentSummaryDTO> risks = riskReportRepository.findByTechnicianOrderByInspectionDateDesc(technician)
-                .stream().map(this::mapRiskToSummaryDto).toList();
+        // A ordenação vem da Specification (datas nulas por último), não do Pageable
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Page<DocumentIndex> page = documentIndexRepository.findAll(
+                DocumentIndexRepository.filtered(technicianId, type, clientFilter, startDate, endDate)
+                        .and(DocumentIndexRepository.listingOrder()), unsorted);
 
-        return Stream.of(visits, aeps, risks)
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+        return new PageImpl<>(toSummaries(page.getContent()), pageable, page.getTotalElements());
     }
 
-    private List<DocumentSummaryDTO> fetchRawDocumentsGlobal() {
-        List<DocumentSummaryDTO> visits = technicalVisitRepository.findAll()
-                .stream().map(this::mapVisitToSummaryDto).toList();
+    private Page<DocumentSummaryDTO> search(Long technicianId, String query, Pageable pageable) {
+        // Mesmo tratamento aplicado ao search_text: sem acentos e em minúsculas
+        String normalized = SearchTextNormalizer.normalize(query);
+        if (normalized.length() < MIN_SEARCH_LENGTH) return Page.empty(pageable);
 
-        List<DocumentSummaryDTO> aeps = aepReportRepository.findAll()
-                .stream().map(this::mapAepToSummaryDto).toList();
+        // A ordenação é sempre por relevância (definida na consulta)
+        Pageable unsorted = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Page<DocumentIndex> page = technicianId != null
+                ? documentIndexRepository.searchForTechnician(technicianId, normalized, unsorted)
+                : documentIndexRepository.searchAll(normalized, unsorted);
 
-        List<DocumentSummaryDTO> risks = riskReportRepository.findAll()
-                .stream().map(this::mapRiskToSummaryDto).toList();
-
-        return Stream.of(visits, aeps, risks)
-                .flatMap(List::stream)
-                .collect(Collectors.toList());
+        return new PageImpl<>(toSummaries(page.getContent()), pageable, page.getTotalElements());
     }
 
-    // ===================================================================================
-    // 3. PROCESSOR (Lógica Centralizada de Filtro e Paginação)
-    // ===================================================================================
+    /**
+     * Busca os N mais recentes com uma consulta "ORDER BY data DESC LIMIT n" por tipo de documento
+     * (executadas em paralelo) e junta as três listas (já ordenadas) com um merge, sem ordenar o histórico inteiro.
+     * Se faltarem documentos com data para completar o limite, completa com os sem data,
+     * que ficam por último como na listagem.
+     *
+     * @param technicianId ID do técnico (null = todos os documentos, visão do Admin)
+     * @param limit        Quantidade de documentos desejada
+     */
+    private List<DocumentIndex> findLatest(Long technicianId, int limit) {
+        List<Supplier<List<DocumentIndex>>> perType = new ArrayList<>();
+
+        try (QueryFanOutService.FanOut fanOut = queryFanOutService.open("documents.latest")) {
+            for (DocumentType type : DocumentType.values()) {
+                perType.add(fanOut.fork(() -> technicianId != null
+                        ? documentIndexRepository.findByTechnicianIdAndDocumentTypeAndCreationDateNotNullOrderByCreationDateDescDocumentIdDesc(
+                                technicianId, type, Limit.of(limit))
+                        : documentIndexRepository.findByDocumentTypeAndCreationDateNotNullOrderByCreationDateDescDocumentIdDesc(
+                                type, Limit.of(limit))));
+            }
+            fanOut.join();
+        }
 
-    private Page<DocumentSummaryDTO> processDocumentList(
-            List<DocumentSummaryDTO> allDocuments,
-            String typeFilter, String clientFilter,
-            LocalDate startDate, LocalDate endDate,
-            Pageable pageable
-    ) {
-        Stream<DocumentSummaryDTO> stream = allDocuments.stream();
+        List<DocumentIndex> latest = mergeLatest(perType.stream().map(Supplier::get).toList(), limit);
 
-        // 1. Filtro por TIPO
-        if (typeFilter != null && !typeFilter.isBlank()) {
-            final String typeInput = typeFilter.trim();
-            stream = stream.filter(doc -> {
-                if ("visit".equalsIgnoreCase(typeInput)) return "Relatório de Visita".equals(doc.getDocumentType());
-                if ("aep".equalsIgnoreCase(typeInput)) return "Avaliação Ergonômica Preliminar".equals(doc.getDocumentType());
-                if ("risk".equalsIgnoreCase(typeInput)) return "Checklist de Riscos".equals(doc.getDocumentType());
-                return false;
-            });
+        if (latest.size() < limit) {
+            Limit remaining = Limit.of(limit - latest.size());
+            latest.addAll(technicianId != null
+                    ? documentIndexRepository.findByTechnicianIdAndCreationDateIsNullOrderByDocumentTypeAscDocumentIdDesc(
+                            technicianId, remaining)
+                    : documentIndexRepository.findByCreationDateIsNullOrderByDocumentTypeAscDocumentIdDesc(remaining));
         }
+        return latest;
+    }
 
-        // 2. Filtro por NOME DO CLIENTE
-        if (clientFilter != null && !clientFilter.isBlank()) {
-            String filter = clientFilter.toLowerCase().trim();
-            stream = stream.filter(doc ->
-                    doc.getClientName() != null &&
-                            doc.getClientName().toLowerCase().contains(filter)
-            );
+    /**
+     * Merge de K listas já ordenadas (data desc, tipo, ID desc) usando uma fila de prioridade
+     * com a "cabeça" de cada lista. Custo O(N log K), com K = número de tipos.
+     */
+    private List<DocumentIndex> mergeLatest(List<List<DocumentIndex>> sortedLists, int limit) {
+        // Cada posição da fila guarda {índice da lista, posição dentro da lista}
+        Comparator<int[]> byHead = Comparator.comparing(
+                (int[] cursor) -> sortedLists.get(cursor[0]).get(cursor[1]), LATEST_ORDER);
+        PriorityQueue<int[]> heads = new PriorityQueue<>(byHead);
+
+        for (int i = 0; i < sortedLists.size(); i++) {
+            if (!sortedLists.get(i).isEmpty()) heads.add(new int[]{i, 0});
         }
 
-        // 3. Filtro por DATA
-        if (startDate != null) {
-            stream = stream.filter(doc -> doc.getCreationDate() != null && !doc.getCreationDate().isBefore(startDate));
-        }
-        if (endDate != null) {
-            stream = stream.filter(doc -> doc.getCreationDate() != null && !doc.getCreationDate().isAfter(endDate));
+        List<DocumentIndex> merged = new ArrayList<>(limit);
+        while (!heads.isEmpty() && merged.size() < limit) {
+            int[] head = heads.poll();
+            List<DocumentIndex> source = sortedLists.get(head[0]);
+            merged.add(source.get(head[1]));
+            if (head[1] + 1 < source.size()) heads.add(new int[]{head[0], head[1] + 1});
         }
+        return merged;
+    }
 
-        // 4. Coleta e Ordena
-        List<DocumentSummaryDTO> filteredList = stream.collect(Collectors.toList());
-        filteredList.sort(Comparator.comparing(DocumentSummaryDTO::getCreationDate, Comparator.nullsLast(Comparator.reverseOrder())));
+    /**
+     * Busca os documentos posicionados depois do cursor (keyset), sem OFFSET:
+     * o custo de cada página é o mesmo, independente da profundidade, e documentos
+     * inseridos durante a navegação não deslocam as páginas seguintes.
+     * Busca um item a mais para saber se existe próxima página sem precisar contar.
+     */
+    private DocumentCursorPageDTO findAfter(Long technicianId, String typeFilter, String clientFilter,
+                                            LocalDate startDate, LocalDate endDate,
+                                            String after, int size, boolean includeTotal) {
+        int pageSize = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        DocumentCursor cursor = DocumentCursor.decode(after);
 
-        // 5. Paginação Manual
-        long totalElements = filteredList.size();
-        int pageSize = pageable.getPageSize();
-        int currentPage = pageable.getPageNumber();
-        int startItem = currentPage * pageSize;
+        DocumentType type = null;
+        if (typeFilter != null && !typeFilter.isBlank()) {
+            type = DocumentType.fromCode(typeFilter.trim());
+            if (type == null) {
+                return new DocumentCursorPageDTO(List.of(), pageSize, null, includeTotal ? 0L : null);
+            }
+        }
 
-        List<DocumentSummaryDTO> paginatedList;
+        Specification<DocumentIndex> filters =
+                DocumentIndexRepository.filtered(technicianId, type, clientFilter, startDate, endDate);
+        Specification<DocumentIndex> pageFilters =
+                cursor != null ? filters.and(DocumentIndexRepository.after(cursor)) : filters;
 
-        if (startItem >= totalElements) {
-            paginatedList = Collections.emptyList();
-        } else {
-            int toIndex = Math.min(startItem + pageSize, (int) totalElements);
-            paginatedList = filteredList.subList(startItem, toIndex);
+        List<DocumentIndex> rows = documentIndexRepository.findBy(
+                pageFilters.and(DocumentIndexRepository.listingOrder()),
+                query -> query.limit(pageSize + 1).all());
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            nextCursor = DocumentCursor.of(rows.get(pageSize - 1)).encode();
         }
 
-        return new PageImpl<>(paginatedList, pageable, totalElements);
+        Long total = includeTotal ? documentIndexRepository.count(filters) : null;
+        return new DocumentCursorPageDTO(toSummaries(rows), pageSize, nextCursor, total);
+    }
+
+    /**
+     * Converte as linhas do índice em DTOs, buscando os e-mails dos clientes
+     * de todas as empresas da página (ou lote da exportação) em uma única consulta.
+     */
+    public List<DocumentSummaryDTO> toSummaries(List<DocumentIndex> entries) {
+        Set<Long> companyIds = entries.stream()
+                .map(DocumentIndex::getCompanyId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Map<Long, String> emailsByCompany = companyIds.isEmpty() ? Map.of() :
+                clientRepository.findEmailsByCompanyIds(companyIds).stream()
+                        .collect(Collectors.toMap(CompanyEmailsView::getCompanyId, CompanyEmailsView::getEmails));
+
+        return entries.stream()
+                .map(entry -> toSummary(entry, emailsByCompany))
+                .collect(Collectors.toList());
+    }
+
+    private DocumentSummaryDTO toSummary(DocumentIndex entry, Map<Long, String> emailsByCompany) {
+        DocumentSummaryDTO dto = new DocumentSummaryDTO();
+        dto.setId(entry.getDocumentId());
+        dto.setDocumentType(entry.getDocumentType().getLabel());
+        dto.setTitle(entry.getTitle());
+        dto.setCreationDate(entry.getCreationDate());
+        dto.setClientName(entry.getCompanyName() != null ? entry.getCompanyName() : "N/A");
+        dto.setClientEmail(entry.getCompanyId() != null ? emailsByCompany.get(entry.getCompanyId()) : null);
+        dto.setTechnicianName(entry.getTechnicianName());
+        dto.setSigned(entry.isSigned());
+        dto.setSentAt(entry.getSentAt());
+        dto.setEmailSent(entry.getSentAt() != null);
+        return dto;
     }
 
     // ===================================================================================
-    // 4. MÉTODOS DE ARQUIVO E DELEÇÃO (Mantidos iguais)
+    // 3. MÉTODOS DE ARQUIVO E DELEÇÃO (Mantidos iguais)
     // ===================================================================================
 
-    public byte[] loadPdfFileByTypeAndId(String type, Long id, User currentUser) throws IOException {
+    public Path loadPdfFileByTypeAndId(String type, Long id, User currentUser) throws IOException {
         String fileName = null;
-        byte[] pdfBytes = null;
+        Path pdfFile = null;
 
         if ("visit".equalsIgnoreCase(type)) {
             TechnicalVisit visit = technicalVisitRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Relatório de Visita não encontrado."));
+            requireVisitPdfReady(visit);
             fileName = visit.getPdfPath();
         } else if ("aep".equalsIgnoreCase(type)) {
-            pdfBytes = aepService.loadOrGenerateAepPdf(id, currentUser);
+            pdfFile = aepPdfPregenerationService.loadOrGenerate(id, currentUser);
         } else if ("risk".equalsIgnoreCase(type)) {
-            OccupationalRiskReport report = riskReportRepository.findById(id)
-                    .orElseThrow(() -> new RuntimeException("Relatório não encontrado."));
-            fileName = report.getPdfPath();
+            // Checklist editado desde a última geração: o PDF é regerado aqui
+            pdfFile = riskChecklistService.loadOrGeneratePdf(id);
         } else {
             throw new IllegalArgumentException("Tipo de documento inválido: " + type);
         }
 
-        if (pdfBytes != null) return pdfBytes;
+        if (pdfFile != null) return pdfFile;
         if (fileName == null || fileName.isBlank()) throw new RuntimeException("Este documento não possui um PDF associado.");
 
         Path path = ("visit".equalsIgnoreCase(type)) ? Paths.get(fileStoragePath, fileName) : Paths.get(fileName);
 
         if (!Files.exists(path)) throw new IOException("Arquivo PDF não encontrado.");
-        return Files.readAllBytes(path);
+        return path;
     }
 
     @Transactional
@@ -255,8 +404,29 @@ public class DocumentAggregationService {
      */
     @Transactional(readOnly = true)
     public FileDownloadDTO downloadDocument(String type, Long id, User currentUser) throws IOException {
+        return resolveDownload(type, id, currentUser, null);
+    }
+
+    /**
+     * Download pelo portal do cliente: apenas documentos já enviados ao cliente e de empresas
+     * vinculadas a ele. Qualquer outro caso responde como "não encontrado".
+     */
+    @Transactional(readOnly = true)
+    public FileDownloadDTO downloadClientDocument(String type, Long id, String clientEmail) throws IOException {
+        Client client = clientRepository.findByEmail(clientEmail)
+                .orElseThrow(() -> new ResourceNotFoundException("Cliente não encontrado."));
+        Set<Long> companyIds = client.getCompanies().stream()
+                .map(Company::getId)
+                .collect(Collectors.toSet());
+        return resolveDownload(type, id, null, companyIds);
+    }
+
+    /**
+     * @param clientCompanyIds null para usuários internos; no portal, as empresas do cliente
+     */
+    private FileDownloadDTO resolveDownload(String type, Long id, User currentUser, Set<Long> clientCompanyIds) throws IOException {
         String pdfPathOnDisk = null;
-        byte[] pdfBytes = null;
+        Path pdfFile = null;
 
         // Variáveis para montar o nome
         String docTypeLabel = "";
@@ -268,6 +438,8 @@ public class DocumentAggregationService {
             TechnicalVisit visit = technicalVisitRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Relatório não encontrado."));
 
+            checkClientAccess(clientCompanyIds, visit.getClientCompany(), visit.getSentToClientAt());
+            requireVisitPdfReady(visit);
             pdfPathOnDisk = visit.getPdfPath();
             docTypeLabel = "Visita Tecnica";
             title = visit.getTitle();
@@ -277,10 +449,11 @@ public class DocumentAggregationService {
         } else if ("aep".equalsIgnoreCase(type)) {
             AepReport aep = aepReportRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("AEP não encontrada."));
+            checkClientAccess(clientCompanyIds, aep.getCompany(), aep.getSentToClientAt());
 
             // AEP pode gerar em tempo real se não tiver path, assumindo lógica similar ao seu service
             if (aep.getPdfPath() == null) {
-                pdfBytes = aepService.loadOrGenerateAepPdf(id, currentUser);
+                pdfFile = aepPdfPregenerationService.loadOrGenerate(id, currentUser);
             } else {
                 pdfPathOnDisk = aep.getPdfPath();
             }
@@ -293,19 +466,21 @@ public class DocumentAggregationService {
         } else if ("risk".equalsIgnoreCase(type)) {
             OccupationalRiskReport report = riskReportRepository.findById(id)
                     .orElseThrow(() -> new RuntimeException("Checklist não encontrado."));
+            checkClientAccess(clientCompanyIds, report.getCompany(), report.getSentToClientAt());
 
-            pdfPathOnDisk = report.getPdfPath();
+            // Checklist editado desde a última geração: o PDF é regerado aqui
+            pdfFile = riskChecklistService.loadOrGeneratePdf(id);
             docTypeLabel = "Checklist Risco";
             title = report.getTitle();
             companyName = report.getCompany().getName();
             date = report.getInspectionDate();
         }
 
-        // 1. Carrega os bytes (se já não foram gerados em memória para AEP)
-        if (pdfBytes == null) {
+        // 1. Localiza o arquivo (AEP sem PDF ou checklist editado acabou de ser gerado em disco); os bytes não são lidos aqui
+        if (pdfFile == null) {
             if (pdfPathOnDisk == null) throw new RuntimeException("Arquivo não encontrado no servidor.");
-            Path path = ("visit".equalsIgnoreCase(type)) ? Paths.get(fileStoragePath, pdfPathOnDisk) : Paths.get(pdfPathOnDisk);
-            pdfBytes = Files.readAllBytes(path);
+            pdfFile = ("visit".equalsIgnoreCase(type)) ? Paths.get(fileStoragePath, pdfPathOnDisk) : Paths.get(pdfPathOnDisk);
+            if (!Files.exists(pdfFile)) throw new IOException("Arquivo PDF não encontrado.");
         }
 
         // 2. Sanitiza e Monta o Nome do Arquivo
@@ -317,7 +492,22 @@ public class DocumentAggregationService {
         String finalFilename = String.format("%s - %s - %s - %s.pdf",
                 docTypeLabel, safeTitle, safeCompany, dateStr);
 
-        return new FileDownloadDTO(finalFilename, pdfBytes);
+        return new FileDownloadDTO(finalFilename, pdfFile);
+    }
+
+    // Visita salva com o PDF ainda na fila: estado esperado do fluxo assíncrono, não erro do servidor
+    private void requireVisitPdfReady(TechnicalVisit visit) {
+        if (visit.getPdfPath() == null && visit.getPdfStatus() == PdfStatus.PENDING) {
+            throw new PdfNotReadyException("O PDF deste relatório ainda está sendo gerado.",
+                    PDF_PENDING_RETRY_AFTER_SECONDS);
+        }
+    }
+
+    private void checkClientAccess(Set<Long> clientCompanyIds, Company company, LocalDateTime sentAt) {
+        if (clientCompanyIds == null) return;
+        if (sentAt == null || company == null || !clientCompanyIds.contains(company.getId())) {
+            throw new ResourceNotFoundException("Documento não encontrado.");
+        }
     }
 
     // Remove caracteres especiais que quebram o download
@@ -326,65 +516,4 @@ public class DocumentAggregationService {
         // Mantém apenas letras, números, espaços, traços e underscores
         return input.replaceAll("[^a-zA-Z0-9 \\-_\\.]", "").trim();
     }
-
-    // ===================================================================================
-    // 5. HELPERS DE MAPEAMENTO (Com E-mail e Nome do Técnico)
-    // ===================================================================================
-
-    public DocumentSummaryDTO mapVisitToSummaryDto(TechnicalVisit visit) {
-        DocumentSummaryDTO dto = new DocumentSummaryDTO();
-        dto.setId(visit.getId());
-        dto.setDocumentType("Relatório de Visita");
-        dto.setTitle(visit.getTitle());
-        dto.setCreationDate(visit.getVisitDate());
-        fillCommonFields(dto, visit.getClientCompany(), visit.getSentToClientAt(), visit.getTechnicianSignatureImageBase64(), visit.getTechnician());
-        return dto;
-    }
-
-    public DocumentSummaryDTO mapAepToSummaryDto(AepReport aep) {
-        DocumentSummaryDTO dto = new DocumentSummaryDTO();
-        dto.setId(aep.getId());
-        dto.setDocumentType("Avaliação Ergonômica Preliminar");
-        dto.setTitle(aep.getEvaluatedFunction());
-        dto.setCreationDate(aep.getEvaluationDate());
-        fillCommonFields(dto, aep.getCompany(), aep.getSentToClientAt(), null, aep.getEvaluator());
-        return dto;
-    }
-
-    public DocumentSummaryDTO mapRiskToSummaryDto(OccupationalRiskReport report) {
-        DocumentSummaryDTO dto = new DocumentSummaryDTO();
-        dto.setId(report.getId());
-        dto.setDocumentType("Checklist de Riscos");
-        dto.setTitle(report.getTitle());
-        dto.setCreationDate(report.getInspectionDate());
-        fillCommonFields(dto, report.getCompany(), report.getSentToClientAt(), report.getTechnicianSignatureImageBase64(), report.getTechnician());
-        return dto;
-    }
-
-    private void fillCommonFields(DocumentSummaryDTO dto, Company company, LocalDateTime sentAt, String signatureBase64, User technician) {
-        if (company != null) {
-            dto.setClientName(company.getName());
-
-            if (company.getClients() != null && !company.getClients().isEmpty()) {
-                // Pega todos os e-mails dos clientes vinculados e junta com vírgula
-                String emails = company.getClients().stream()
-                        .map(Client::getEmail)
-                        .collect(Collectors.joining(", "));
-                dto.setClientEmail(emails);
-            } else {
-                dto.setClientEmail(null);
-            }
-
-        } else {
-            dto.setClientName("N/A");
-            dto.setClientEmail(null);
-        }
-
-        if (technician != null) {
-            dto.setTechnicianName(technician.getName());
-        }
-
-        dto.setEmailSent(sentAt != null);
-        dto.setSigned(signatureBase64 != null && !signatureBase64.isBlank());
-    }
-}
\ No newline at end of file
+}
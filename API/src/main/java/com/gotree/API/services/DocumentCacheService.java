@@ -0,0 +1,133 @@
+package com.gotree.API.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.gotree.API.dto.document.DocumentCursorPageDTO;
+import com.gotree.API.events.DocumentChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache em memória das listagens de documentos e KPIs do dashboard.
+ *
+ * - Entradas por técnico (technicianId) e uma visão global (technicianId = null) para o Admin.
+ * - Limitado pelo "peso" (número aproximado de documentos guardados), não pelo número de entradas.
+ * - Invalidado pelos eventos DocumentChangedEvent após o commit; o TTL é só uma rede de segurança.
+ * - Cada entrada guarda a geração do seu dono de quando o cálculo começou: um valor calculado antes
+ *   de uma alteração nunca é gravado nem servido, e a alteração de um técnico não afeta os demais.
+ * - Métricas de acerto, falha e remoção expostas como cache.* (cache=documentSummaries).
+ */
+@Service
+public class DocumentCacheService {
+
+    /**
+     * Chave do cache.
+     *
+     * @param technicianId Dono da entrada (null = visão global do Admin)
+     * @param view         Consulta cacheada (ex: "latest", "page", "my-stats")
+     * @param params       Parâmetros da consulta (filtros, página, cursor...)
+     */
+    private record Key(Long technicianId, String view, List<Object> params) {
+    }
+
+    private record Entry(long generation, Object value) {
+    }
+
+    private final Cache<Key, Entry> cache;
+
+    // Gerações, incrementadas a cada invalidação (antes de remover as entradas)
+    private final AtomicLong everyoneGeneration = new AtomicLong();   // Alterações que afetam todos os técnicos
+    private final AtomicLong globalViewGeneration = new AtomicLong(); // Qualquer alteração (visão global do Admin)
+    private final Map<Long, AtomicLong> technicianGenerations = new ConcurrentHashMap<>();
+
+    public DocumentCacheService(MeterRegistry meterRegistry,
+                                @Value("${app.document-cache.max-weight:20000}") long maxWeight,
+                                @Value("${app.document-cache.ttl:PT10M}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Key key, Entry entry) -> weightOf(entry.value()))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "documentSummaries");
+    }
+
+    /**
+     * Retorna o valor cacheado para o técnico ou calcula com o loader.
+     *
+     * @param technicianId ID do técnico (null = visão global)
+     * @param view         Nome da consulta
+     * @param loader       Cálculo do valor em caso de falta no cache
+     * @param params       Parâmetros que diferenciam a consulta (podem ser nulos)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Long technicianId, String view, Supplier<T> loader, Object... params) {
+        Key key = new Key(technicianId, view, Arrays.asList(params));
+
+        long generationBefore = generationOf(technicianId);
+        Entry cached = cache.getIfPresent(key);
+        if (cached != null) {
+            if (cached.generation() == generationBefore) return (T) cached.value();
+            cache.asMap().remove(key, cached);
+        }
+
+        T value = loader.get();
+        if (value != null) {
+            // Compara a geração e grava de forma atômica: se houve alteração durante o cálculo, não grava
+            cache.asMap().compute(key, (k, existing) -> generationOf(technicianId) == generationBefore
+                    ? new Entry(generationBefore, value)
+                    : existing);
+        }
+        return value;
+    }
+
+    /**
+     * Remove as entradas do técnico afetado e a visão global (que inclui os documentos de todos).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDocumentChanged(DocumentChangedEvent event) {
+        globalViewGeneration.incrementAndGet();
+        if (event.technicianId() == null) {
+            everyoneGeneration.incrementAndGet();
+            cache.invalidateAll();
+            return;
+        }
+        technicianGenerations.computeIfAbsent(event.technicianId(), id -> new AtomicLong()).incrementAndGet();
+        cache.asMap().keySet().removeIf(key ->
+                key.technicianId() == null || Objects.equals(key.technicianId(), event.technicianId()));
+    }
+
+    /**
+     * Geração atual das entradas do técnico. As duas parcelas só crescem, então a soma muda sempre
+     * que qualquer uma delas muda.
+     */
+    private long generationOf(Long technicianId) {
+        if (technicianId == null) return globalViewGeneration.get();
+        AtomicLong own = technicianGenerations.get(technicianId);
+        return everyoneGeneration.get() + (own != null ? own.get() : 0);
+    }
+
+    /**
+     * Peso aproximado de uma entrada: número de itens guardados (mínimo 1).
+     */
+    private static int weightOf(Object value) {
+        if (value instanceof Page<?> page) return page.getNumberOfElements() + 1;
+        if (value instanceof DocumentCursorPageDTO cursorPage) return cursorPage.getContent().size() + 1;
+        if (value instanceof Collection<?> collection) return collection.size() + 1;
+        return 1;
+    }
+}
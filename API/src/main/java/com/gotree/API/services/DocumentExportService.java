@@ -0,0 +1,204 @@
+package com.gotree.API.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gotree.API.dto.document.DocumentSummaryDTO;
+import com.gotree.API.entities.DocumentIndex;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.repositories.DocumentIndexRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Exportação da listagem completa de documentos (auditoria do Admin) em CSV ou NDJSON.
+ *
+ * Os documentos são lidos do índice com um cursor do banco (fetch size) e escritos direto na
+ * resposta, em lotes pequenos: a memória usada não depende da quantidade de documentos.
+ */
+@Service
+public class DocumentExportService {
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * @return o formato correspondente ou null se não for suportado
+         */
+        public static Format fromParam(String value) {
+            if (value == null) return null;
+            for (Format format : values()) {
+                if (format.extension.equalsIgnoreCase(value.trim())) return format;
+            }
+            return null;
+        }
+    }
+
+    // Linhas trazidas do banco por ida ao servidor, e tamanho do lote escrito na resposta
+    private static final int FETCH_SIZE = 500;
+
+    private static final String CSV_HEADER =
+            "tipo,id,titulo,empresa,emails_cliente,tecnico,data,assinado,enviado,enviado_em";
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate readOnlyTransaction;
+    private final DocumentAggregationService documentAggregationService;
+    private final ObjectMapper objectMapper;
+
+    public DocumentExportService(EntityManager entityManager,
+                                 PlatformTransactionManager transactionManager,
+                                 DocumentAggregationService documentAggregationService,
+                                 ObjectMapper objectMapper) {
+        this.entityManager = entityManager;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.documentAggregationService = documentAggregationService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Escreve todos os documentos que atendem aos filtros (os mesmos de findAllDocumentsGlobal).
+     * Deve ser chamado na thread do StreamingResponseBody: abre a própria transação somente leitura,
+     * necessária para o driver do Postgres usar um cursor em vez de carregar tudo.
+     */
+    public void export(Format format, String typeFilter, String clientFilter,
+                       LocalDate startDate, LocalDate endDate, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+
+        if (format == Format.CSV) {
+            writer.write('\uFEFF'); // BOM: o Excel abre o arquivo com os acentos corretos
+            writer.write(CSV_HEADER);
+            writer.write('\n');
+        }
+
+        DocumentType type = null;
+        if (typeFilter != null && !typeFilter.isBlank()) {
+            type = DocumentType.fromCode(typeFilter.trim());
+            if (type == null) {
+                // Tipo desconhecido: exporta apenas o cabeçalho
+                writer.flush();
+                return;
+            }
+        }
+        DocumentType documentType = type;
+
+        try {
+            readOnlyTransaction.executeWithoutResult(status -> {
+                try (Stream<DocumentIndex> rows = streamDocuments(documentType, clientFilter, startDate, endDate)) {
+                    List<DocumentIndex> batch = new ArrayList<>(FETCH_SIZE);
+                    rows.forEach(row -> {
+                        batch.add(row);
+                        if (batch.size() == FETCH_SIZE) writeBatch(batch, format, writer);
+                    });
+                    writeBatch(batch, format, writer);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private Stream<DocumentIndex> streamDocuments(DocumentType type, String clientFilter,
+                                                  LocalDate startDate, LocalDate endDate) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<DocumentIndex> query = cb.createQuery(DocumentIndex.class);
+        Root<DocumentIndex> root = query.from(DocumentIndex.class);
+
+        query.where(DocumentIndexRepository.filtered(null, type, clientFilter, startDate, endDate)
+                .toPredicate(root, query, cb));
+        query.orderBy(DocumentIndexRepository.listingOrder(root, cb));
+
+        return entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true)
+                .getResultStream();
+    }
+
+    /**
+     * Escreve o lote e o descarta, liberando as entidades do contexto de persistência.
+     */
+    private void writeBatch(List<DocumentIndex> batch, Format format, Writer writer) {
+        if (batch.isEmpty()) return;
+        try {
+            for (DocumentSummaryDTO dto : documentAggregationService.toSummaries(batch)) {
+                writer.write(format == Format.CSV ? toCsvLine(dto) : objectMapper.writeValueAsString(dto));
+                writer.write('\n');
+            }
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        batch.forEach(entityManager::detach);
+        batch.clear();
+    }
+
+    private String toCsvLine(DocumentSummaryDTO dto) {
+        return String.join(",",
+                csv(dto.getDocumentType()),
+                csv(dto.getId() != null ? dto.getId().toString() : null),
+                csv(dto.getTitle()),
+                csv(dto.getClientName()),
+                csv(dto.getClientEmail()),
+                csv(dto.getTechnicianName()),
+                csv(dto.getCreationDate() != null ? dto.getCreationDate().toString() : null),
+                dto.isSigned() ? "sim" : "nao",
+                dto.isEmailSent() ? "sim" : "nao",
+                csv(dto.getSentAt() != null ? dto.getSentAt().format(DATE_TIME) : null));
+    }
+
+    // Aspas em todo valor com separador, aspas ou quebra de linha (RFC 4180).
+    // Campos digitados pelo usuário que começam com =, +, -, @, tab ou CR viram fórmula no Excel:
+    // recebem um apóstrofo na frente e vão entre aspas, para serem lidos como texto
+    static String csv(String value) {
+        if (value == null) return "";
+        if (startsLikeFormula(value)) {
+            return "\"'" + value.replace("\"", "\"\"") + "\"";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+
+    private static boolean startsLikeFormula(String value) {
+        if (value.isEmpty()) return false;
+        char first = value.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
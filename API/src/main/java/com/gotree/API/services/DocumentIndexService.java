@@ -0,0 +1,289 @@
+package com.gotree.API.services;
+
+import com.gotree.API.dto.document.DocumentSourceDTO;
+import com.gotree.API.dto.document.DocumentTextDTO;
+import com.gotree.API.entities.AepReport;
+import com.gotree.API.entities.Company;
+import com.gotree.API.entities.DocumentIndex;
+import com.gotree.API.entities.EvaluatedFunction;
+import com.gotree.API.entities.OccupationalRiskReport;
+import com.gotree.API.entities.TechnicalVisit;
+import com.gotree.API.entities.User;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.events.DocumentChangedEvent;
+import com.gotree.API.repositories.AepReportRepository;
+import com.gotree.API.repositories.DocumentIndexRepository;
+import com.gotree.API.repositories.OccupationalRiskReportRepository;
+import com.gotree.API.repositories.TechnicalVisitRepository;
+import com.gotree.API.utils.SearchTextNormalizer;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serviço responsável por manter o índice unificado de documentos (tb_document_index).
+ * É chamado na escrita pelos serviços de Visita Técnica, AEP e Checklist de Riscos
+ * (criação, edição e exclusão) e pelo envio de e-mail, além de permitir a
+ * reconstrução completa do índice a partir das tabelas de origem.
+ * Toda alteração publica um DocumentChangedEvent (usado para invalidar caches de listagem).
+ *
+ * Escritas e reconstrução são serializadas por um advisory lock do Postgres (lockForWrite /
+ * lockForRebuild), mantido até o fim da transação de quem escreve: nenhuma escrita se perde no
+ * meio do "apaga tudo e reinsere" da reconstrução.
+ */
+@Service
+public class DocumentIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentIndexService.class);
+    private static final int REBUILD_BATCH_SIZE = 500;
+
+    private final DocumentIndexRepository documentIndexRepository;
+    private final TechnicalVisitRepository technicalVisitRepository;
+    private final AepReportRepository aepReportRepository;
+    private final OccupationalRiskReportRepository riskReportRepository;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DocumentIndexService(DocumentIndexRepository documentIndexRepository,
+                                TechnicalVisitRepository technicalVisitRepository,
+                                AepReportRepository aepReportRepository,
+                                OccupationalRiskReportRepository riskReportRepository,
+                                EntityManager entityManager,
+                                ApplicationEventPublisher eventPublisher) {
+        this.documentIndexRepository = documentIndexRepository;
+        this.technicalVisitRepository = technicalVisitRepository;
+        this.aepReportRepository = aepReportRepository;
+        this.riskReportRepository = riskReportRepository;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // ===================================================================================
+    // 1. ATUALIZAÇÃO NA ESCRITA
+    // ===================================================================================
+
+    @Transactional
+    public void indexVisit(TechnicalVisit visit) {
+        List<String> texts = new ArrayList<>();
+        texts.add(visit.getSummary());
+        visit.getFindings().forEach(finding -> texts.add(finding.getDescription()));
+        upsert(DocumentType.VISIT, toSource(visit), texts);
+    }
+
+    @Transactional
+    public void indexAep(AepReport aep) {
+        upsert(DocumentType.AEP, toSource(aep), List.of());
+    }
+
+    @Transactional
+    public void indexRisk(OccupationalRiskReport report) {
+        List<String> texts = report.getEvaluatedFunctions().stream()
+                .map(EvaluatedFunction::getFunctionName)
+                .toList();
+        upsert(DocumentType.RISK, toSource(report), texts);
+    }
+
+    /**
+     * Remove o documento do índice (chamado na exclusão do documento de origem).
+     */
+    @Transactional
+    public void remove(DocumentType type, Long documentId) {
+        documentIndexRepository.lockForWrite();
+        Long technicianId = documentIndexRepository.findByDocumentTypeAndDocumentId(type, documentId)
+                .map(DocumentIndex::getTechnicianId)
+                .orElse(null);
+
+        documentIndexRepository.deleteByDocument(type, documentId);
+        publishChange(type, documentId, technicianId);
+    }
+
+    /**
+     * Registra a data de envio por e-mail ao cliente.
+     */
+    @Transactional
+    public void markSent(DocumentType type, Long documentId, LocalDateTime sentAt) {
+        documentIndexRepository.lockForWrite();
+        documentIndexRepository.findByDocumentTypeAndDocumentId(type, documentId)
+                .ifPresent(entry -> {
+                    entry.setSentAt(sentAt);
+                    documentIndexRepository.save(entry);
+                    publishChange(type, documentId, entry.getTechnicianId());
+                });
+    }
+
+    /**
+     * Propaga a alteração do nome de uma empresa para as linhas do índice.
+     */
+    @Transactional
+    public void renameCompany(Long companyId, String name) {
+        documentIndexRepository.lockForWrite();
+        documentIndexRepository.updateCompanyName(companyId, name);
+        eventPublisher.publishEvent(DocumentChangedEvent.affectingEveryone());
+    }
+
+    /**
+     * Propaga a alteração do nome de um técnico para as linhas do índice.
+     */
+    @Transactional
+    public void renameTechnician(Long technicianId, String name) {
+        documentIndexRepository.lockForWrite();
+        documentIndexRepository.updateTechnicianName(technicianId, name);
+        eventPublisher.publishEvent(DocumentChangedEvent.affectingEveryone());
+    }
+
+    // ===================================================================================
+    // 2. RECONSTRUÇÃO (BACKFILL)
+    // ===================================================================================
+
+    /**
+     * Apaga e reconstrói todo o índice a partir das tabelas de origem.
+     * Cada tipo é lido em lotes por projeção (empresa e técnico via JOIN, assinatura como booleano),
+     * sem carregar as entidades nem disparar consultas LAZY por documento.
+     * Espera as escritas em andamento terminarem e bloqueia as novas até o commit.
+     *
+     * @return Total de documentos indexados
+     */
+    @Transactional
+    public long rebuild() {
+        logger.info("Reconstruindo o índice de documentos...");
+        documentIndexRepository.lockForRebuild();
+        documentIndexRepository.deleteAllInBatch();
+
+        long total = 0;
+        total += rebuildInBatches(DocumentType.VISIT, technicalVisitRepository::findIndexSourcesAfter, ids -> {
+            List<DocumentTextDTO> texts = new ArrayList<>(technicalVisitRepository.findSummariesByIds(ids));
+            texts.addAll(technicalVisitRepository.findFindingDescriptionsByVisitIds(ids));
+            return texts;
+        });
+        total += rebuildInBatches(DocumentType.AEP, aepReportRepository::findIndexSourcesAfter, ids -> List.of());
+        total += rebuildInBatches(DocumentType.RISK, riskReportRepository::findIndexSourcesAfter,
+                riskReportRepository::findFunctionNamesByReportIds);
+
+        logger.info("Índice de documentos reconstruído: {} documentos.", total);
+        eventPublisher.publishEvent(DocumentChangedEvent.affectingEveryone());
+        return total;
+    }
+
+    /**
+     * @param fetcher    Projeção dos documentos do tipo, a partir do último ID processado
+     * @param textLoader Textos pesquisáveis extras (resumo, achados, funções) dos IDs do lote
+     */
+    private long rebuildInBatches(DocumentType type,
+                                  BiFunction<Long, Pageable, List<DocumentSourceDTO>> fetcher,
+                                  Function<List<Long>, List<DocumentTextDTO>> textLoader) {
+        long count = 0;
+        long lastId = 0L;
+        Pageable batch = PageRequest.of(0, REBUILD_BATCH_SIZE);
+        List<DocumentSourceDTO> rows;
+        do {
+            rows = fetcher.apply(lastId, batch);
+
+            Map<Long, List<String>> textsById = rows.isEmpty() ? Map.of() :
+                    textLoader.apply(rows.stream().map(DocumentSourceDTO::getId).toList()).stream()
+                            .collect(Collectors.groupingBy(DocumentTextDTO::getDocumentId,
+                                    Collectors.mapping(DocumentTextDTO::getText, Collectors.toList())));
+
+            documentIndexRepository.saveAll(rows.stream()
+                    .map(row -> fill(new DocumentIndex(), type, row, textsById.getOrDefault(row.getId(), List.of())))
+                    .toList());
+            count += rows.size();
+
+            // Libera o contexto de persistência a cada lote
+            entityManager.flush();
+            entityManager.clear();
+
+            if (!rows.isEmpty()) lastId = rows.get(rows.size() - 1).getId();
+        } while (rows.size() == REBUILD_BATCH_SIZE);
+        return count;
+    }
+
+    // ===================================================================================
+    // 3. HELPERS
+    // ===================================================================================
+
+    private void upsert(DocumentType type, DocumentSourceDTO source, List<String> texts) {
+        documentIndexRepository.lockForWrite();
+        DocumentIndex entry = documentIndexRepository.save(fill(findOrCreate(type, source.getId()), type, source, texts));
+        publishChange(type, source.getId(), entry.getTechnicianId());
+    }
+
+    /**
+     * Publica a alteração; se o técnico não for conhecido, invalida tudo por segurança.
+     */
+    private void publishChange(DocumentType type, Long documentId, Long technicianId) {
+        eventPublisher.publishEvent(technicianId != null
+                ? new DocumentChangedEvent(type, documentId, technicianId)
+                : DocumentChangedEvent.affectingEveryone());
+    }
+
+    private DocumentIndex findOrCreate(DocumentType type, Long documentId) {
+        return documentIndexRepository.findByDocumentTypeAndDocumentId(type, documentId)
+                .orElseGet(DocumentIndex::new);
+    }
+
+    private DocumentSourceDTO toSource(TechnicalVisit visit) {
+        return toSource(visit.getId(), visit.getTitle(), visit.getClientCompany(), visit.getTechnician(),
+                visit.getVisitDate(), visit.getTechnicianSignatureImageBase64(), visit.getSentToClientAt(), visit.getPdfPath());
+    }
+
+    private DocumentSourceDTO toSource(AepReport aep) {
+        return toSource(aep.getId(), aep.getEvaluatedFunction(), aep.getCompany(), aep.getEvaluator(),
+                aep.getEvaluationDate(), null, aep.getSentToClientAt(), aep.getPdfPath());
+    }
+
+    private DocumentSourceDTO toSource(OccupationalRiskReport report) {
+        return toSource(report.getId(), report.getTitle(), report.getCompany(), report.getTechnician(),
+                report.getInspectionDate(), report.getTechnicianSignatureImageBase64(), report.getSentToClientAt(), report.getPdfPath());
+    }
+
+    private DocumentSourceDTO toSource(Long documentId, String title, Company company, User technician,
+                                       LocalDate creationDate, String signatureBase64,
+                                       LocalDateTime sentAt, String pdfPath) {
+        return new DocumentSourceDTO(
+                documentId, title,
+                company != null ? company.getId() : null,
+                company != null ? company.getName() : null,
+                technician != null ? technician.getId() : null,
+                technician != null ? technician.getName() : null,
+                creationDate,
+                signatureBase64 != null && !signatureBase64.isBlank(),
+                sentAt, pdfPath);
+    }
+
+    /**
+     * @param texts Textos pesquisáveis além do título (resumo, achados, funções avaliadas)
+     */
+    private DocumentIndex fill(DocumentIndex entry, DocumentType type, DocumentSourceDTO source, List<String> texts) {
+        entry.setDocumentType(type);
+        entry.setDocumentId(source.getId());
+        entry.setTitle(source.getTitle());
+        entry.setCompanyId(source.getCompanyId());
+        entry.setCompanyName(source.getCompanyName());
+        entry.setTechnicianId(source.getTechnicianId());
+        entry.setTechnicianName(source.getTechnicianName());
+        entry.setCreationDate(source.getCreationDate());
+        entry.setSigned(Boolean.TRUE.equals(source.getSigned()));
+        entry.setSentAt(source.getSentAt());
+        entry.setPdfPath(source.getPdfPath());
+
+        List<String> searchable = new ArrayList<>();
+        searchable.add(source.getTitle());
+        searchable.addAll(texts);
+        entry.setSearchText(SearchTextNormalizer.join(searchable));
+        return entry;
+    }
+}
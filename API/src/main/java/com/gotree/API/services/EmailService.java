@@ -2,11 +2,13 @@ package com.gotree.API.services;
 
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
-import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.nio.file.Path;
+
 @Service
 public class EmailService {
     private final JavaMailSender mailSender;
@@ -15,7 +17,7 @@ public class EmailService {
         this.mailSender = mailSender;
     }
 
-    public void sendReportWithAttachment(String to, String subject, String body, byte[] pdfBytes, String filename) {
+    public void sendReportWithAttachment(String to, String subject, String body, Path pdfFile, String filename) {
         try {
             MimeMessage message = mailSender.createMimeMessage();
             MimeMessageHelper helper = new MimeMessageHelper(message, true, "UTF-8");
@@ -25,8 +27,8 @@ public class EmailService {
             helper.setSubject(subject);
             helper.setText(body, true); // true = HTML
 
-            // Anexa o PDF (ByteArrayResource é importante aqui)
-            helper.addAttachment(filename, new ByteArrayResource(pdfBytes));
+            // Anexa o PDF direto do disco: o JavaMail lê o arquivo em blocos ao montar a mensagem
+            helper.addAttachment(filename, new FileSystemResource(pdfFile));
 
             mailSender.send(message);
         } catch (MessagingException e) {
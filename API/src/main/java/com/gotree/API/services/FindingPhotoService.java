@@ -0,0 +1,290 @@
+package com.gotree.API.services;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Processa e grava as fotos dos achados da visita técnica.
+ *
+ * As fotos chegam do celular em resolução total (vários MB cada) e são embutidas no PDF da visita.
+ * Antes de gravar, cada foto é reduzida para caber em app.visit-photos.max-dimension, recebe a
+ * rotação indicada pelo EXIF (aplicada nos pixels) e é recomprimida em JPEG sem metadados — o que
+ * também remove dados como a localização GPS. Opcionalmente, o arquivo original é mantido em
+ * visit_photos/originals.
+ */
+@Service
+public class FindingPhotoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FindingPhotoService.class);
+    private static final String PHOTO_DIR = "visit_photos";
+    private static final String ORIGINALS_DIR = "originals";
+
+    private final ExecutorService executor;
+    private final Path photoDir;
+    private final int maxDimension;
+    private final float jpegQuality;
+    private final boolean keepOriginal;
+
+    private final Counter bytesSaved;
+    private final Counter processed;
+    private final Counter passthrough;
+
+    public FindingPhotoService(@Qualifier("imageProcessingExecutor") ExecutorService executor,
+                               MeterRegistry meterRegistry,
+                               @Value("${file.storage.path}") String fileStoragePath,
+                               @Value("${app.visit-photos.max-dimension:1600}") int maxDimension,
+                               @Value("${app.visit-photos.jpeg-quality:0.8}") float jpegQuality,
+                               @Value("${app.visit-photos.keep-original:false}") boolean keepOriginal) {
+        this.executor = executor;
+        this.photoDir = Paths.get(fileStoragePath, PHOTO_DIR);
+        this.maxDimension = maxDimension;
+        this.jpegQuality = jpegQuality;
+        this.keepOriginal = keepOriginal;
+
+        this.bytesSaved = Counter.builder("visit.photos.bytes.saved")
+                .description("Bytes economizados pela redução/recompressão das fotos dos achados")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        this.processed = Counter.builder("visit.photos.processed")
+                .description("Fotos dos achados gravadas, por resultado do processamento")
+                .tag("result", "recompressed")
+                .register(meterRegistry);
+        this.passthrough = Counter.builder("visit.photos.processed")
+                .description("Fotos dos achados gravadas, por resultado do processamento")
+                .tag("result", "passthrough")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Processa e grava as fotos em paralelo (as duas fotos de um achado, por exemplo).
+     *
+     * @param photosBase64 Fotos em Base64 (com ou sem prefixo data-URL); posições nulas ou vazias são ignoradas
+     * @return Caminhos absolutos das fotos gravadas, na mesma ordem (null onde não havia foto)
+     */
+    public List<String> storePhotos(List<String> photosBase64) {
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (String photo : photosBase64) {
+            futures.add(photo == null || photo.isEmpty()
+                    ? CompletableFuture.completedFuture(null)
+                    : CompletableFuture.supplyAsync(() -> storePhoto(photo), executor));
+        }
+
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            // Uma foto inválida invalida o achado; as que já foram gravadas ficam órfãs, como antes
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    private String storePhoto(String photoBase64) {
+        try {
+            byte[] original = Base64.getDecoder().decode(stripDataUrlPrefix(photoBase64));
+            String fileName = "finding_" + UUID.randomUUID() + ".jpg";
+            Path imagePath = photoDir.resolve(fileName);
+            Files.createDirectories(imagePath.getParent());
+
+            if (keepOriginal) {
+                Path originalPath = photoDir.resolve(ORIGINALS_DIR).resolve(fileName);
+                Files.createDirectories(originalPath.getParent());
+                Files.write(originalPath, original);
+            }
+
+            BufferedImage image = decode(original);
+            if (image == null) {
+                // Formato que o ImageIO não lê (ex: HEIC, JPEG CMYK): grava como veio, como era feito antes
+                logger.warn("Formato de foto não suportado para redução; gravando o arquivo original.");
+                Files.write(imagePath, original);
+                passthrough.increment();
+            } else {
+                BufferedImage prepared = orient(downscale(image), readExifOrientation(original));
+                writeJpeg(prepared, imagePath);
+                long saved = original.length - Files.size(imagePath);
+                if (saved > 0) bytesSaved.increment(saved);
+                processed.increment();
+            }
+
+            // Caminho absoluto, que será usado com 'file:///' no template
+            return imagePath.toAbsolutePath().toString().replace("\\", "/");
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao processar a imagem do achado. Verifique se o arquivo é válido.", e);
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Erro ao processar a imagem do achado. Verifique se o arquivo é válido.", e);
+        }
+    }
+
+    // ===================================================================================
+    // PROCESSAMENTO
+    // ===================================================================================
+
+    /**
+     * Decodifica a foto, ou null se o ImageIO não a reconhece. Variantes que ele reconhece mas não
+     * decodifica (ex: JPEG CMYK/YCCK) lançam IIOException em vez de devolver null: também viram null,
+     * e a foto é gravada sem processamento. Só o Base64 inválido recusa o upload.
+     */
+    private BufferedImage decode(byte[] original) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(original));
+        } catch (IOException | RuntimeException e) {
+            logger.debug("Foto não decodificada pelo ImageIO: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Reduz a imagem para caber em maxDimension (sem ampliar). Reduções grandes são feitas pela
+     * metade em etapas, o que evita o serrilhado da interpolação bilinear em um passo só.
+     * O resultado é sempre RGB (transparência vira fundo branco), pronto para JPEG.
+     */
+    private BufferedImage downscale(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(width, height));
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+
+        BufferedImage current = image;
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height, null);
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    /**
+     * Aplica a orientação EXIF (1 a 8) nos pixels, já que os metadados não são mantidos.
+     */
+    static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation < 2 || orientation > 8) return image;
+        int w = image.getWidth();
+        int h = image.getHeight();
+        boolean swap = orientation >= 5;
+
+        AffineTransform t = switch (orientation) {
+            case 2 -> new AffineTransform(-1, 0, 0, 1, w, 0); // espelhada na horizontal
+            case 3 -> new AffineTransform(-1, 0, 0, -1, w, h); // 180°
+            case 4 -> new AffineTransform(1, 0, 0, -1, 0, h); // espelhada na vertical
+            case 5 -> new AffineTransform(0, 1, 1, 0, 0, 0); // transposta
+            case 6 -> new AffineTransform(0, 1, -1, 0, h, 0); // 90° horário
+            case 7 -> new AffineTransform(0, -1, -1, 0, h, w); // transversa
+            default -> new AffineTransform(0, -1, 1, 0, 0, w); // 8: 90° anti-horário
+        };
+        return draw(image, swap ? h : w, swap ? w : h, t);
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height, AffineTransform transform) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            if (transform != null) {
+                g.drawImage(source, transform, null);
+            } else {
+                g.drawImage(source, 0, 0, width, height, null);
+            }
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private void writeJpeg(BufferedImage image, Path path) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(path.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+            writer.setOutput(out);
+            // Sem metadados de entrada: o arquivo sai só com o cabeçalho JFIF (EXIF/GPS removidos)
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Lê a tag Orientation (0x0112) do EXIF de um JPEG. Devolve 1 (normal) se não houver.
+     */
+    static int readExifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) return 1;
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            if (marker == 0xDA || marker == 0xD9) break; // início dos dados da imagem: não há mais metadados
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            int segment = offset + 4;
+            if (marker == 0xE1 && segment + 6 <= jpeg.length
+                    && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x' && jpeg[segment + 2] == 'i' && jpeg[segment + 3] == 'f') {
+                return readTiffOrientation(jpeg, segment + 6, Math.min(jpeg.length, offset + 2 + length));
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int readTiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) return 1;
+        boolean littleEndian = data[tiff] == 'I' && data[tiff + 1] == 'I';
+        int ifd = tiff + (int) readUnsigned(data, tiff + 4, 4, littleEndian);
+        if (ifd + 2 > end || ifd < tiff) return 1;
+
+        int entries = (int) readUnsigned(data, ifd, 2, littleEndian);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) break;
+            if (readUnsigned(data, entry, 2, littleEndian) == 0x0112) {
+                return (int) readUnsigned(data, entry + 8, 2, littleEndian);
+            }
+        }
+        return 1;
+    }
+
+    private static long readUnsigned(byte[] data, int offset, int size, boolean littleEndian) {
+        long value = 0;
+        for (int i = 0; i < size; i++) {
+            int b = data[offset + (littleEndian ? size - 1 - i : i)] & 0xFF;
+            value = (value << 8) | b;
+        }
+        return value;
+    }
+
+    private String stripDataUrlPrefix(String dataUrl) {
+        int commaIndex = dataUrl.indexOf(',');
+        return commaIndex != -1 ? dataUrl.substring(commaIndex + 1) : dataUrl;
+    }
+}
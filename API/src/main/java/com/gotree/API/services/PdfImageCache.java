@@ -0,0 +1,72 @@
+package com.gotree.API.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lowagie.text.Image;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache das imagens já decodificadas usadas nos PDFs, compartilhado por todas as renderizações.
+ *
+ * Logo da empresa, assinaturas e fotos dos achados aparecem em vários relatórios (e o mesmo
+ * relatório é gerado de novo a cada edição); sem o cache, cada PDF decodificava tudo de novo.
+ * Limitado pelo tamanho dos arquivos de origem (app.pdf-render.image-cache-max-bytes), com remoção
+ * LRU. Métricas expostas como cache.* (cache=pdfImages).
+ *
+ * As chaves são montadas pelo CachingUserAgent: arquivos por caminho + data de modificação + tamanho,
+ * data URIs pelo SHA-256 do conteúdo e a logo da empresa emissora pelo fingerprint do SystemInfo.
+ */
+@Component
+public class PdfImageCache {
+
+    private record Entry(Image image, int weight) {
+    }
+
+    private final Cache<String, Entry> cache;
+
+    public PdfImageCache(MeterRegistry meterRegistry,
+                         @Value("${app.pdf-render.image-cache-max-bytes:67108864}") long maxBytes) {
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, Entry entry) -> entry.weight())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "pdfImages");
+    }
+
+    /**
+     * Devolve a imagem da chave, decodificando com o loader na primeira vez.
+     * A instância devolvida é compartilhada: quem for alterar (ex: escala) deve trabalhar em uma cópia.
+     *
+     * @param sourceBytes Bytes de origem, usados na decodificação e como peso da entrada
+     * @param decoder     Decodifica os bytes (e aplica a escala de saída do renderizador)
+     */
+    public Image get(String key, Supplier<byte[]> sourceBytes, Function<byte[], Image> decoder) {
+        return cache.get(key, k -> {
+            byte[] bytes = sourceBytes.get();
+            return new Entry(decoder.apply(bytes), bytes.length);
+        }).image();
+    }
+
+    /**
+     * Chave de um data URI: o SHA-256 do texto (mais barato do que decodificar a imagem de novo).
+     */
+    public static String dataUriKey(String dataUri) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(dataUri.getBytes(StandardCharsets.US_ASCII));
+            return "data:" + HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.gotree.API.services;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Cache de PDFs endereçado por conteúdo.
+ *
+ * O nome do arquivo é o SHA-256 de tudo o que influencia o resultado da renderização:
+ * template (nome e conteúdo do HTML), dados da empresa emissora (SystemInfo) e uma serialização
+ * canônica (chaves ordenadas) do modelo passado ao template. Entradas idênticas apontam para o
+ * mesmo arquivo em {file.storage.path}/pdf-cache, então nunca são renderizadas duas vezes e uma
+ * edição que não muda nada reaproveita o PDF existente.
+ *
+ * O modelo deve conter apenas valores simples (textos, datas, números, listas e mapas) com os campos
+ * que o template realmente lê — e o ID do documento, para que cada documento tenha o próprio arquivo.
+ */
+@Service
+public class PdfRenderCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfRenderCache.class);
+    private static final String CACHE_DIR = "pdf-cache";
+
+    // Chaves de mapas e propriedades sempre na mesma ordem: mesmo modelo, mesmo digest
+    private final ObjectMapper canonicalMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .enable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    // Hash do HTML de cada template (não muda enquanto a aplicação roda)
+    private final Map<String, String> templateHashes = new ConcurrentHashMap<>();
+
+    private final SystemInfoCache systemInfoCache;
+    private final Counter hits;
+    private final Counter misses;
+    private final Path cacheDir;
+
+    public PdfRenderCache(SystemInfoCache systemInfoCache,
+                          MeterRegistry meterRegistry,
+                          @Value("${file.storage.path}") String fileStoragePath) {
+        this.systemInfoCache = systemInfoCache;
+        this.cacheDir = Paths.get(fileStoragePath, CACHE_DIR).toAbsolutePath();
+
+        this.hits = Counter.builder("pdf.render.cache")
+                .description("Consultas ao cache de PDFs por resultado")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("pdf.render.cache")
+                .description("Consultas ao cache de PDFs por resultado")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("pdf.render.cache.hit.ratio", this, PdfRenderCache::hitRatio)
+                .description("Fração das gerações de PDF atendidas pelo cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Calcula o digest das entradas da renderização.
+     *
+     * @param templateName Nome do template Thymeleaf (ex: "aep-template")
+     * @param model        Modelo canônico com os valores lidos pelo template
+     */
+    public String digest(String templateName, Map<String, Object> model) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            update(sha, templateName);
+            update(sha, templateHash(templateName));
+            updateSystemInfo(sha);
+            sha.update(canonicalMapper.writeValueAsBytes(model));
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao serializar o modelo do PDF.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * SHA-256 apenas do modelo (sem template nem empresa emissora): identifica o conteúdo do
+     * documento, para detectar se uma edição mudou algo que aparece no PDF.
+     */
+    public String modelDigest(Map<String, Object> model) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256")
+                    .digest(canonicalMapper.writeValueAsBytes(model)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao serializar o modelo do PDF.", e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Caminho absoluto do PDF correspondente ao digest.
+     */
+    public Path pathFor(String digest) {
+        return cacheDir.resolve(digest + ".pdf");
+    }
+
+    /**
+     * Indica se o PDF gravado no documento já corresponde ao digest (e o arquivo ainda existe).
+     */
+    public boolean isCurrent(String pdfPath, String digest) {
+        if (pdfPath == null || pdfPath.isBlank()) return false;
+        Path path = pathFor(digest);
+        return Paths.get(pdfPath).toAbsolutePath().equals(path) && Files.exists(path);
+    }
+
+    /**
+     * Devolve o PDF do digest, renderizando apenas se ele ainda não existir.
+     *
+     * @param renderTo Gera o PDF no caminho recebido (ex: ReportService.renderPdfToFile, que escreve
+     *                 em um temporário e move, para nunca expor um PDF pela metade)
+     */
+    public Path getOrRender(String digest, Consumer<Path> renderTo) {
+        Path path = pathFor(digest);
+        if (Files.exists(path)) {
+            hits.increment();
+            return path;
+        }
+
+        misses.increment();
+        renderTo.accept(path);
+        return path;
+    }
+
+    /**
+     * Remove o PDF anterior de um documento quando ele foi substituído por outro digest.
+     */
+    public void deleteReplaced(String oldPdfPath, Path newPath) {
+        if (oldPdfPath == null || oldPdfPath.isBlank()) return;
+        try {
+            Path old = Paths.get(oldPdfPath).toAbsolutePath();
+            if (!old.equals(newPath)) Files.deleteIfExists(old);
+        } catch (IOException e) {
+            logger.warn("Falha ao deletar o PDF antigo: {}", oldPdfPath);
+        }
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private String templateHash(String templateName) {
+        return templateHashes.computeIfAbsent(templateName, name -> {
+            ClassPathResource resource = new ClassPathResource("templates/" + name + ".html");
+            try (InputStream in = resource.getInputStream()) {
+                return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(in.readAllBytes()));
+            } catch (IOException | NoSuchAlgorithmException e) {
+                // Sem o conteúdo, o nome do template continua no digest
+                logger.warn("Não foi possível ler o template {} para o digest do PDF.", name);
+                return "";
+            }
+        });
+    }
+
+    /**
+     * Dados da empresa emissora injetados pelo ReportService (nome, CNPJ e logo).
+     */
+    private void updateSystemInfo(MessageDigest sha) {
+        update(sha, systemInfoCache.get().fingerprint());
+    }
+
+    private void update(MessageDigest sha, String value) {
+        byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+        sha.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        sha.update((byte) ':');
+        sha.update(bytes);
+    }
+}
@@ -0,0 +1,236 @@
+package com.gotree.API.services;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Métricas da geração de PDF por template e por fase, para saber onde um relatório lento gasta o tempo.
+ *
+ * - pdf.render.phase{template, phase}: template (Thymeleaf), parse (XHTML + CSS), layout, pdf
+ *   (createPDF, sem a escrita) e write (escrita no disco/resposta), com histograma para percentis.
+ * - pdf.render.duration{template, outcome}: tempo total de cada renderização.
+ * - pdf.render.output.size, pdf.render.pages e pdf.render.image.bytes{template}: tamanho do PDF,
+ *   páginas e bytes de imagem carregados.
+ * - pdf.render.in.flight{template}: renderizações em andamento.
+ *
+ * Renderizações acima de app.pdf-render.slow-threshold-ms geram um WARN com o documento e as fases.
+ */
+@Component
+public class PdfRenderMetrics {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfRenderMetrics.class);
+
+    public enum Phase {
+        TEMPLATE, PARSE, LAYOUT, PDF, WRITE;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final long slowThresholdMillis;
+    private final Map<String, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    public PdfRenderMetrics(MeterRegistry meterRegistry,
+                            @Value("${app.pdf-render.slow-threshold-ms:5000}") long slowThresholdMillis) {
+        this.meterRegistry = meterRegistry;
+        this.slowThresholdMillis = slowThresholdMillis;
+    }
+
+    /**
+     * Inicia a medição de uma renderização. O chamador marca cada fase e encerra com finish().
+     *
+     * @param documentId ID do documento (pode ser null), usado apenas no log de renderização lenta
+     */
+    public Recording start(String templateName, Object documentId) {
+        AtomicInteger counter = inFlight.computeIfAbsent(templateName, template -> {
+            AtomicInteger value = new AtomicInteger();
+            Gauge.builder("pdf.render.in.flight", value, AtomicInteger::get)
+                    .description("Renderizações de PDF em andamento, por template")
+                    .tag("template", template)
+                    .register(meterRegistry);
+            return value;
+        });
+        counter.incrementAndGet();
+        return new Recording(templateName, documentId, counter);
+    }
+
+    /**
+     * Medição de uma única renderização (usada só pela thread que renderiza).
+     */
+    public class Recording {
+
+        private final String templateName;
+        private final Object documentId;
+        private final AtomicInteger inFlightCounter;
+        private final long startNanos = System.nanoTime();
+        private final Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+        private long phaseStart = startNanos;
+        private boolean finished;
+
+        private Recording(String templateName, Object documentId, AtomicInteger inFlightCounter) {
+            this.templateName = templateName;
+            this.documentId = documentId;
+            this.inFlightCounter = inFlightCounter;
+        }
+
+        /**
+         * Encerra a fase atual: o tempo desde a marcação anterior (ou do início) vai para a fase.
+         */
+        public void mark(Phase phase) {
+            long now = System.nanoTime();
+            add(phase, now - phaseStart);
+            phaseStart = now;
+        }
+
+        /**
+         * Soma um tempo medido à parte a uma fase (ex: escrita, medida dentro do createPDF).
+         */
+        public void add(Phase phase, long nanos) {
+            phaseNanos.merge(phase, nanos, Long::sum);
+        }
+
+        /**
+         * Move o tempo de uma fase para outra (ex: a escrita sai do tempo do createPDF).
+         */
+        public void move(Phase from, Phase to, long nanos) {
+            add(from, -nanos);
+            add(to, nanos);
+        }
+
+        /**
+         * Stream que mede o tempo e os bytes escritos no destino.
+         */
+        public TimedOutputStream timed(OutputStream out) {
+            return new TimedOutputStream(out);
+        }
+
+        /**
+         * Registra as métricas da renderização concluída com sucesso.
+         */
+        public void success(long outputBytes, int pages, long imageBytes) {
+            if (!complete("success")) return;
+            summary("pdf.render.output.size", "Tamanho dos PDFs gerados", "bytes").record(outputBytes);
+            summary("pdf.render.pages", "Páginas dos PDFs gerados", "pages").record(pages);
+            summary("pdf.render.image.bytes", "Bytes de imagem carregados por PDF", "bytes").record(imageBytes);
+            logIfSlow(outputBytes, pages);
+        }
+
+        /**
+         * Registra o tempo de uma renderização que falhou (sem tamanho nem páginas).
+         */
+        public void failure() {
+            complete("failure");
+        }
+
+        private boolean complete(String outcome) {
+            if (finished) return false;
+            finished = true;
+            inFlightCounter.decrementAndGet();
+
+            phaseNanos.forEach((phase, nanos) -> Timer.builder("pdf.render.phase")
+                    .description("Tempo de cada fase da geração de PDF")
+                    .tag("template", templateName)
+                    .tag("phase", phase.tag())
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(Math.max(0, nanos), TimeUnit.NANOSECONDS));
+            Timer.builder("pdf.render.duration")
+                    .description("Tempo total da geração de PDF")
+                    .tag("template", templateName)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            return true;
+        }
+
+        private DistributionSummary summary(String name, String description, String unit) {
+            return DistributionSummary.builder(name)
+                    .description(description)
+                    .baseUnit(unit)
+                    .tag("template", templateName)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private void logIfSlow(long outputBytes, int pages) {
+            long totalMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+            if (totalMillis < slowThresholdMillis) return;
+
+            StringBuilder phases = new StringBuilder();
+            phaseNanos.forEach((phase, nanos) -> phases.append(phases.isEmpty() ? "" : ", ")
+                    .append(phase.tag()).append('=').append(Duration.ofNanos(Math.max(0, nanos)).toMillis()).append("ms"));
+            logger.warn("Renderização lenta: template {} documento {} em {} ms ({}) - {} página(s), {} bytes.",
+                    templateName, documentId != null ? documentId : "-", totalMillis, phases, pages, outputBytes);
+        }
+    }
+
+    /**
+     * Conta os bytes e o tempo gasto nas escritas (inclusive flush/close) do stream de destino.
+     */
+    public static class TimedOutputStream extends FilterOutputStream {
+
+        private final AtomicLong bytes = new AtomicLong();
+        private final AtomicLong nanos = new AtomicLong();
+
+        private TimedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            nanos.addAndGet(System.nanoTime() - start);
+            bytes.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos.addAndGet(System.nanoTime() - start);
+            bytes.addAndGet(len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            nanos.addAndGet(System.nanoTime() - start);
+        }
+
+        @Override
+        public void close() throws IOException {
+            // O iText fecha o stream ao terminar o documento; o chamador continua dono do destino
+            flush();
+        }
+
+        public long getBytes() {
+            return bytes.get();
+        }
+
+        public long getNanos() {
+            return nanos.get();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.gotree.API.services;
+
+import com.lowagie.text.pdf.BaseFont;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Fábrica dos renderizadores de PDF (Flying Saucer).
+ *
+ * A fonte Montserrat (~700 KB) é lida e analisada uma única vez, na inicialização: ela é copiada do
+ * classpath para um arquivo local e o BaseFont fica no cache do iText. Cada PDF recebe um
+ * ITextRenderer novo (o renderizador não é thread-safe), e o addFont dele reaproveita esse BaseFont,
+ * lendo do arquivo local só as métricas da fonte (em vez de extrair o TTF inteiro do JAR a cada PDF).
+ * As imagens passam pelo CachingUserAgent, que reaproveita as já decodificadas (PdfImageCache).
+ *
+ * A fonte é embutida como subconjunto (app.pdf-render.font-subset, padrão true): cada PDF leva só
+ * os glifos usados no documento, e não o TTF inteiro. O iText já subconjunta por padrão; a opção
+ * deixa isso explícito e permite gerar o PDF com a fonte completa para comparação.
+ */
+@Component
+public class PdfRendererFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(PdfRendererFactory.class);
+    private static final String FONT_RESOURCE = "/fonts/Montserrat.ttf";
+
+    // Cópia local da fonte (null se não foi possível carregá-la)
+    private final String fontPath;
+
+    // BaseURI para recursos locais (caso ainda use alguma imagem estática)
+    private final String baseUri = new File(".").toURI().toString();
+
+    private final PdfImageCache imageCache;
+    private final boolean subsetFonts;
+
+    public PdfRendererFactory(PdfImageCache imageCache,
+                              @Value("${app.pdf-render.font-subset:true}") boolean subsetFonts) {
+        this.imageCache = imageCache;
+        this.subsetFonts = subsetFonts;
+        this.fontPath = prepareFont();
+    }
+
+    /**
+     * Cria um renderizador para um único documento, com a fonte compartilhada já registrada.
+     * A instância deve ser usada apenas pela thread que a criou.
+     */
+    public ITextRenderer newRenderer() {
+        return newRenderer(null);
+    }
+
+    /**
+     * Como {@link #newRenderer()}, com a logo da empresa emissora já decodificada pelo SystemInfoCache:
+     * o user agent a reconhece pela URI do template e a busca no PdfImageCache pelo fingerprint,
+     * sem calcular o hash do data URI nem decodificar o Base64 de novo.
+     *
+     * @param systemInfo Snapshot usado para montar o HTML (null para não registrar a logo)
+     */
+    public ITextRenderer newRenderer(SystemInfoCache.Snapshot systemInfo) {
+        ITextRenderer renderer = new ITextRenderer();
+
+        CachingUserAgent userAgent = new CachingUserAgent(renderer.getOutputDevice(), imageCache);
+        userAgent.setSharedContext(renderer.getSharedContext());
+        renderer.getSharedContext().setUserAgentCallback(userAgent);
+
+        if (systemInfo != null && systemInfo.logoBytes() != null) {
+            userAgent.preload(systemInfo.logoDataUri(), "systeminfo:" + systemInfo.fingerprint(), systemInfo.logoBytes());
+        }
+
+        if (fontPath != null) {
+            try {
+                renderer.getFontResolver().addFont(fontPath, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+            } catch (Exception e) {
+                logger.error("Aviso: Fonte Montserrat não registrada no PDF.", e);
+            }
+        }
+        return renderer;
+    }
+
+    public String getBaseUri() {
+        return baseUri;
+    }
+
+    /**
+     * Copia a fonte do classpath (dentro do JAR em produção) para um arquivo temporário e a analisa
+     * uma vez. O BaseFont resultante fica no cache do próprio iText, chaveado pelo caminho do arquivo.
+     *
+     * @return caminho da cópia local, ou null se a fonte não pôde ser carregada
+     */
+    private String prepareFont() {
+        URL fontUrl = getClass().getResource(FONT_RESOURCE);
+        if (fontUrl == null) {
+            logger.error("Aviso: Fonte Montserrat não encontrada em {}.", FONT_RESOURCE);
+            return null;
+        }
+
+        try (InputStream in = fontUrl.openStream()) {
+            Path file = Files.createTempFile("montserrat-", ".ttf");
+            file.toFile().deleteOnExit();
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+
+            // Mesmos argumentos do addFont de cada renderizador: ele recebe esta mesma instância do cache.
+            // O subconjunto é montado por documento (cada PdfWriter registra os glifos que usou)
+            BaseFont font = BaseFont.createFont(file.toString(), BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+            font.setSubset(subsetFonts);
+
+            logger.info("Fonte Montserrat carregada para os PDFs (subconjunto: {})", subsetFonts);
+            return file.toString();
+        } catch (Exception e) {
+            logger.error("Aviso: Fonte Montserrat não carregada.", e);
+            return null;
+        }
+    }
+}
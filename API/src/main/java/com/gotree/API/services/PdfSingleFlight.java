@@ -0,0 +1,79 @@
+package com.gotree.API.services;
+
+import com.gotree.API.enums.DocumentType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Garante uma única geração de PDF em andamento por documento (tipo + ID) nesta instância.
+ *
+ * Quem chega enquanto o PDF do mesmo documento está sendo gerado (ex: dois downloads, ou um
+ * download e um envio por e-mail) não renderiza de novo: espera a geração em andamento e recebe o
+ * mesmo arquivo. Cada espera conta em pdf.render.coalesced{type}.
+ *
+ * Entre instâncias diferentes não há coordenação; para isso, quem grava o pdfPath deve usar uma
+ * atualização condicional (só grava se o caminho não mudou desde a leitura).
+ */
+@Component
+public class PdfSingleFlight {
+
+    private record Key(DocumentType type, Long id) {
+    }
+
+    private final Map<Key, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+    private final Map<DocumentType, Counter> coalesced = new EnumMap<>(DocumentType.class);
+
+    public PdfSingleFlight(MeterRegistry meterRegistry) {
+        for (DocumentType type : DocumentType.values()) {
+            coalesced.put(type, Counter.builder("pdf.render.coalesced")
+                    .description("Gerações de PDF evitadas por aproveitar uma geração já em andamento")
+                    .tag("type", type.getCode())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Executa a geração, ou aguarda a que já está em andamento para o mesmo documento.
+     * Se a geração em andamento falhar, todos os que esperavam recebem a mesma exceção.
+     *
+     * @param render Gera o PDF e grava o caminho no documento; roda apenas na primeira chamada
+     */
+    public Path run(DocumentType type, Long id, Supplier<Path> render) {
+        Key key = new Key(type, id);
+        CompletableFuture<Path> flight = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.get(type).increment();
+            return await(existing);
+        }
+
+        try {
+            Path path = render.get();
+            flight.complete(path);
+            return path;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private Path await(CompletableFuture<Path> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) throw cause;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.gotree.API.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Executa consultas independentes em paralelo (virtual threads), cada uma em sua própria
+ * transação somente leitura e, portanto, em sua própria conexão do pool.
+ *
+ * Uso:
+ * <pre>
+ * try (QueryFanOutService.FanOut fanOut = queryFanOutService.open("dashboard.my-stats")) {
+ *     Supplier&lt;Long&gt; visits = fanOut.fork(() -&gt; repository.count());
+ *     fanOut.join();
+ *     long total = visits.get();
+ * }
+ * </pre>
+ * Se uma tarefa falhar (ou o tempo limite estourar), as demais são canceladas e o erro é propagado.
+ * Um semáforo global limita quantas consultas paralelas podem ocupar conexões ao mesmo tempo,
+ * preservando o limite do Hikari para o restante da aplicação.
+ */
+@Service
+public class QueryFanOutService {
+
+    private final ExecutorService executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore connectionPermits;
+    private final MeterRegistry meterRegistry;
+    private final long timeoutMillis;
+
+    public QueryFanOutService(@Qualifier("queryFanOutExecutor") ExecutorService executor,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.query-fanout.max-concurrent-queries:8}") int maxConcurrentQueries,
+                              @Value("${app.query-fanout.timeout-ms:15000}") long timeoutMillis) {
+        this.executor = executor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.connectionPermits = new Semaphore(maxConcurrentQueries, true);
+        this.meterRegistry = meterRegistry;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Abre um novo grupo de consultas paralelas.
+     *
+     * @param name Nome da operação (tag "operation" da métrica documents.query.fanout)
+     */
+    public FanOut open(String name) {
+        return new FanOut(name);
+    }
+
+    /**
+     * Grupo de consultas disparadas juntas. Deve ser usado em try-with-resources:
+     * ao fechar, tudo o que ainda estiver rodando é cancelado.
+     */
+    public final class FanOut implements AutoCloseable {
+
+        private final String name;
+        private final List<Future<?>> futures = new ArrayList<>();
+        private final long startNanos = System.nanoTime();
+
+        private FanOut(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Dispara a consulta em uma virtual thread.
+         *
+         * @return Supplier que devolve o resultado, disponível após {@link #join()}
+         */
+        public <T> Supplier<T> fork(Supplier<T> query) {
+            Future<T> future = executor.submit(() -> {
+                connectionPermits.acquire();
+                try {
+                    return readOnlyTransaction.execute(status -> query.get());
+                } finally {
+                    connectionPermits.release();
+                }
+            });
+            futures.add(future);
+            return () -> resultOf(future);
+        }
+
+        /**
+         * Aguarda todas as consultas. Na primeira falha, cancela as restantes e relança o erro.
+         */
+        public void join() {
+            long deadline = startNanos + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+            String outcome = "success";
+            try {
+                for (Future<?> future : futures) {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (ExecutionException e) {
+                outcome = "error";
+                cancelAll();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException runtime) throw runtime;
+                throw new RuntimeException("Falha na consulta paralela '" + name + "': " + cause.getMessage(), cause);
+            } catch (TimeoutException e) {
+                outcome = "timeout";
+                cancelAll();
+                throw new RuntimeException("Tempo limite excedido na consulta paralela '" + name + "'.", e);
+            } catch (InterruptedException e) {
+                outcome = "interrupted";
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Consulta paralela '" + name + "' interrompida.", e);
+            } finally {
+                Timer.builder("documents.query.fanout")
+                        .description("Tempo total de um grupo de consultas paralelas")
+                        .tag("operation", name)
+                        .tag("outcome", outcome)
+                        .register(meterRegistry)
+                        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        public void close() {
+            cancelAll();
+        }
+
+        private void cancelAll() {
+            futures.forEach(future -> future.cancel(true));
+        }
+
+        private <T> T resultOf(Future<T> future) {
+            if (!future.isDone()) {
+                throw new IllegalStateException("Resultado acessado antes de join() na consulta paralela '" + name + "'.");
+            }
+            try {
+                return future.get();
+            } catch (ExecutionException | CancellationException e) {
+                throw new IllegalStateException("Consulta paralela '" + name + "' não concluída.", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
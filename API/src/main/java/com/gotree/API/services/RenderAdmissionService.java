@@ -0,0 +1,142 @@
+package com.gotree.API.services;
+
+import com.gotree.API.exceptions.RenderCapacityExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Controle de admissão da geração de PDF.
+ *
+ * Um número fixo de renderizações roda ao mesmo tempo (vagas). Quem chega com as vagas ocupadas
+ * entra numa fila limitada e espera até um tempo máximo; com a fila cheia ou a espera esgotada,
+ * a requisição é recusada na hora (429 + Retry-After) em vez de disputar heap e CPU com as demais.
+ *
+ * Métricas: pdf.render.active, pdf.render.queue.depth, pdf.render.wait e pdf.render.rejected (tag reason).
+ */
+@Service
+public class RenderAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RenderAdmissionService.class);
+
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMillis;
+    private final long retryAfterSeconds;
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Timer waitTimer;
+    private final Counter rejectedQueueFull;
+    private final Counter rejectedTimeout;
+
+    public RenderAdmissionService(MeterRegistry meterRegistry,
+                                  @Value("${app.pdf-render.max-concurrent:4}") int maxConcurrent,
+                                  @Value("${app.pdf-render.max-queued:16}") int maxQueued,
+                                  @Value("${app.pdf-render.queue-timeout-ms:10000}") long queueTimeoutMillis,
+                                  @Value("${app.pdf-render.retry-after-seconds:5}") long retryAfterSeconds) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrent = maxConcurrent;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        Gauge.builder("pdf.render.active", permits, p -> maxConcurrent - p.availablePermits())
+                .description("Renderizações de PDF em andamento")
+                .register(meterRegistry);
+        Gauge.builder("pdf.render.queue.depth", waiting, AtomicInteger::get)
+                .description("Renderizações de PDF aguardando uma vaga")
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("pdf.render.wait")
+                .description("Tempo de espera por uma vaga de renderização")
+                .register(meterRegistry);
+        this.rejectedQueueFull = Counter.builder("pdf.render.rejected")
+                .description("Renderizações recusadas por saturação")
+                .tag("reason", "queue_full")
+                .register(meterRegistry);
+        this.rejectedTimeout = Counter.builder("pdf.render.rejected")
+                .description("Renderizações recusadas por saturação")
+                .tag("reason", "timeout")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Executa a renderização de uma requisição do usuário: espera na fila limitada ou é recusada.
+     *
+     * @throws RenderCapacityExceededException se a fila estiver cheia ou a espera passar do limite
+     */
+    public <T> T admit(Supplier<T> render) {
+        long start = System.nanoTime();
+        try {
+            // tryAcquire com tempo respeita a ordem de chegada do semáforo justo (não "fura" a fila)
+            if (!permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                if (waiting.incrementAndGet() > maxQueued) {
+                    waiting.decrementAndGet();
+                    rejectedQueueFull.increment();
+                    throw saturated();
+                }
+                try {
+                    if (!permits.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                        rejectedTimeout.increment();
+                        throw saturated();
+                    }
+                } finally {
+                    waiting.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Espera pela geração do PDF interrompida.", e);
+        } finally {
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        try {
+            return render.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Executa uma renderização em segundo plano (fila de PDFs assíncronos, rotinas agendadas).
+     * Essas tarefas já são limitadas pelo próprio executor, então esperam a vaga sem limite de
+     * tempo em vez de serem recusadas; ainda assim contam nas vagas e na profundidade da fila.
+     */
+    public <T> T admitWaiting(Supplier<T> render) {
+        long start = System.nanoTime();
+        waiting.incrementAndGet();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Espera pela geração do PDF interrompida.", e);
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        try {
+            return render.get();
+        } finally {
+            permits.release();
+        }
+    }
+
+    private RenderCapacityExceededException saturated() {
+        logger.warn("Geração de PDF saturada ({} em andamento, {} na fila). Requisição recusada.",
+                maxConcurrent - permits.availablePermits(), waiting.get());
+        return new RenderCapacityExceededException(
+                "Muitos PDFs sendo gerados no momento. Tente novamente em alguns segundos.", retryAfterSeconds);
+    }
+}
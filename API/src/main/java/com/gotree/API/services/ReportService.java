@@ -1,124 +1,170 @@
 package com.gotree.API.services;
 
-import com.gotree.API.entities.SystemInfo;
-import com.gotree.API.repositories.SystemInfoRepository;
-import com.lowagie.text.pdf.BaseFont;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 import org.xhtmlrenderer.pdf.ITextRenderer;
 
-import java.io.ByteArrayOutputStream;
-import java.io.File;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 
 @Service
 public class ReportService {
 
     private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
-    private final TemplateEngine templateEngine;
-    private final SystemInfoRepository systemInfoRepository;
 
-    public ReportService(TemplateEngine templateEngine, SystemInfoRepository systemInfoRepository) {
+    /**
+     * Chave opcional no mapa de dados com o ID do documento, usada apenas nas métricas/log de lentidão.
+     */
+    public static final String DOCUMENT_ID = "documentId";
+
+    private final TemplateEngine templateEngine;
+    private final SystemInfoCache systemInfoCache;
+    private final PdfRendererFactory pdfRendererFactory;
+    private final RenderAdmissionService renderAdmissionService;
+    private final PdfRenderMetrics renderMetrics;
+
+    public ReportService(TemplateEngine templateEngine, SystemInfoCache systemInfoCache,
+                         PdfRendererFactory pdfRendererFactory, RenderAdmissionService renderAdmissionService,
+                         PdfRenderMetrics renderMetrics) {
         this.templateEngine = templateEngine;
-        this.systemInfoRepository = systemInfoRepository;
+        this.systemInfoCache = systemInfoCache;
+        this.pdfRendererFactory = pdfRendererFactory;
+        this.renderAdmissionService = renderAdmissionService;
+        this.renderMetrics = renderMetrics;
     }
 
-    public byte[] generatePdfFromHtml(String templateName, Map<String, Object> data) {
-        // 1. INJEÇÃO AUTOMÁTICA: Garante que a logo e dados da empresa estejam no mapa
-        enrichDataWithSystemInfo(data);
-
-        Context context = new Context();
-        context.setVariables(data);
-
-        logger.info("Gerando HTML para o template: {}", templateName);
-        String htmlContent = templateEngine.process(templateName, context);
+    /**
+     * Gera o PDF de uma requisição do usuário direto no stream informado (arquivo ou resposta HTTP),
+     * sem montar o documento inteiro em memória. Passa pelo controle de admissão: com a geração
+     * saturada, lança RenderCapacityExceededException (429) em vez de enfileirar sem limite.
+     * O stream não é fechado aqui.
+     */
+    public void renderPdf(String templateName, Map<String, Object> data, OutputStream out) {
+        renderAdmissionService.admit(() -> render(templateName, data, out));
+    }
 
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ITextRenderer renderer = new ITextRenderer();
+    /**
+     * Gera o PDF a partir de uma tarefa em segundo plano: aguarda a vaga em vez de ser recusada.
+     */
+    public void renderPdfInBackground(String templateName, Map<String, Object> data, OutputStream out) {
+        renderAdmissionService.admitWaiting(() -> render(templateName, data, out));
+    }
 
-            // Configuração da Fonte Montserrat (Mantida do seu código)
-            try {
-                URL fontUrl = getClass().getResource("/fonts/Montserrat.ttf");
-                if (fontUrl != null) {
-                    renderer.getFontResolver().addFont(fontUrl.toString(), BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+    /**
+     * Gera o PDF direto em disco: escreve num temporário da mesma pasta e move para o destino,
+     * para que ninguém leia um arquivo pela metade. Se a geração falhar, o temporário é apagado.
+     *
+     * @param background true quando chamado por uma fila assíncrona (espera vaga em vez de receber 429)
+     */
+    public void renderPdfToFile(String templateName, Map<String, Object> data, Path target, boolean background) {
+        Path temp = null;
+        try {
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+                if (background) {
+                    renderPdfInBackground(templateName, data, out);
+                } else {
+                    renderPdf(templateName, data, out);
                 }
-            } catch (Exception e) {
-                logger.error("Aviso: Fonte Montserrat não carregada.", e);
             }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            throw new RuntimeException("Erro ao salvar o PDF: " + e.getMessage(), e);
+        } finally {
+            deleteQuietly(temp);
+        }
+    }
 
-            // BaseURI para recursos locais (caso ainda use alguma imagem estática)
-            String baseUri = new File(".").toURI().toString();
-            renderer.setDocumentFromString(htmlContent, baseUri);
+    private Void render(String templateName, Map<String, Object> data, OutputStream out) {
+        PdfRenderMetrics.Recording recording = renderMetrics.start(templateName, data.get(DOCUMENT_ID));
+        try {
+            // 1. INJEÇÃO AUTOMÁTICA: Garante que a logo e dados da empresa estejam no mapa
+            SystemInfoCache.Snapshot info = systemInfoCache.get();
+            enrichDataWithSystemInfo(data, info);
 
-            renderer.layout();
-            renderer.createPDF(outputStream);
+            Context context = new Context();
+            context.setVariables(data);
+
+            logger.info("Gerando HTML para o template: {}", templateName);
+            String htmlContent = templateEngine.process(templateName, context);
+            recording.mark(PdfRenderMetrics.Phase.TEMPLATE);
 
+            writePdf(htmlContent, info, out, recording);
             logger.info("PDF gerado com sucesso.");
-            return outputStream.toByteArray();
-        } catch (Exception e) {
-            logger.error("==== FALHA CRÍTICA NA GERAÇÃO DO PDF ====", e);
-            throw new RuntimeException("Erro ao renderizar o PDF.", e);
+            return null;
+        } finally {
+            recording.failure(); // Sem efeito se a renderização já foi registrada como sucesso
         }
     }
 
-    /**
-     * Busca os dados da empresa no banco e injeta no mapa se não existirem.
-     */
-    private void enrichDataWithSystemInfo(Map<String, Object> data) {
+    private void writePdf(String htmlContent, SystemInfoCache.Snapshot info, OutputStream out,
+                          PdfRenderMetrics.Recording recording) {
         try {
-            // Tenta pegar do banco
-            SystemInfo info = systemInfoRepository.findFirst();
-
-            if (info != null) {
-                data.putIfAbsent("generatingCompanyName", info.getCompanyName());
-                data.putIfAbsent("generatingCompanyCnpj", info.getCnpj());
+            // Renderizador novo por PDF, com a fonte Montserrat já carregada pela fábrica
+            // e a logo do mesmo snapshot usado no HTML já decodificada
+            ITextRenderer renderer = pdfRendererFactory.newRenderer(info);
+            renderer.setDocumentFromString(htmlContent, pdfRendererFactory.getBaseUri());
+            recording.mark(PdfRenderMetrics.Phase.PARSE);
 
-                if (info.getLogoBase64() != null && !info.getLogoBase64().isBlank()) {
-                    // Remove prefixo se existir, para padronizar
-                    String cleanBase64 = stripDataUrlPrefix(info.getLogoBase64());
-                    data.put("generatingCompanyLogo", cleanBase64);
-                }
-            } else {
-                // FALLBACK: Se o banco estiver vazio (primeira execução), tenta carregar do arquivo estático
-                // Isso atende seu desejo de usar o static como backup
-                logger.warn("SystemInfo não encontrado no banco. Tentando logo padrão estática.");
-                loadStaticLogoFallback(data);
-            }
+            renderer.layout();
+            recording.mark(PdfRenderMetrics.Phase.LAYOUT);
+
+            // O iText escreve as páginas no stream conforme avança (sem cópia do PDF inteiro);
+            // o tempo gasto escrevendo no destino sai do createPDF e vai para a fase "write"
+            PdfRenderMetrics.TimedOutputStream timedOut = recording.timed(out);
+            renderer.createPDF(timedOut);
+            timedOut.flush();
+            recording.mark(PdfRenderMetrics.Phase.PDF);
+            recording.move(PdfRenderMetrics.Phase.PDF, PdfRenderMetrics.Phase.WRITE, timedOut.getNanos());
+
+            recording.success(timedOut.getBytes(), renderer.getRootBox().getLayer().getPages().size(),
+                    imageBytes(renderer));
         } catch (Exception e) {
-            logger.error("Erro ao carregar dados do sistema para o relatório", e);
+            logger.error("==== FALHA CRÍTICA NA GERAÇÃO DO PDF ====", e);
+            throw new RuntimeException("Erro ao renderizar o PDF.", e);
         }
     }
 
-    /**
-     * Fallback: Tenta ler src/main/resources/static/img/logo.png e converter para Base64
-     * Isso garante que funcione mesmo se o banco estiver vazio.
-     */
-    private void loadStaticLogoFallback(Map<String, Object> data) {
+    private long imageBytes(ITextRenderer renderer) {
+        return renderer.getSharedContext().getUserAgentCallback() instanceof CachingUserAgent userAgent
+                ? userAgent.getImageBytes() : 0;
+    }
+
+    private void deleteQuietly(Path temp) {
+        if (temp == null) return;
         try {
-            ClassPathResource resource = new ClassPathResource("static/img/logo.png");
-            if (resource.exists()) {
-                byte[] imageBytes = resource.getInputStream().readAllBytes();
-                String base64 = java.util.Base64.getEncoder().encodeToString(imageBytes);
-                data.put("generatingCompanyLogo", base64);
-
-                // Valores padrão se não tiver no banco
-                data.putIfAbsent("generatingCompanyName", "Minha Empresa (Padrão)");
-                data.putIfAbsent("generatingCompanyCnpj", "00.000.000/0001-00");
-            }
+            Files.deleteIfExists(temp);
         } catch (IOException e) {
-            logger.warn("Logo estática padrão não encontrada.");
+            logger.warn("Falha ao apagar o PDF temporário: {}", temp);
         }
     }
 
-    private String stripDataUrlPrefix(String dataUrl) {
-        if (dataUrl == null) return null;
-        int commaIndex = dataUrl.indexOf(',');
-        return commaIndex != -1 ? dataUrl.substring(commaIndex + 1) : dataUrl;
+    /**
+     * Injeta os dados da empresa emissora no mapa se não existirem (snapshot em memória, sem ir ao banco).
+     */
+    private void enrichDataWithSystemInfo(Map<String, Object> data, SystemInfoCache.Snapshot info) {
+        if (info.fromDatabase()) {
+            data.putIfAbsent("generatingCompanyName", info.companyName());
+            data.putIfAbsent("generatingCompanyCnpj", info.cnpj());
+        } else {
+            // Valores padrão se não tiver no banco (a logo vem do arquivo estático)
+            data.putIfAbsent("generatingCompanyName", "Minha Empresa (Padrão)");
+            data.putIfAbsent("generatingCompanyCnpj", "00.000.000/0001-00");
+        }
+
+        // Logo já sem o prefixo data-URL, para padronizar
+        if (info.logoBase64() != null) {
+            data.put("generatingCompanyLogo", info.logoBase64());
+        }
     }
 }
\ No newline at end of file
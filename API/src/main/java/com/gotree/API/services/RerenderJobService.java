@@ -0,0 +1,389 @@
+package com.gotree.API.services;
+
+import com.gotree.API.dto.document.RerenderJobDTO;
+import com.gotree.API.dto.document.RerenderJobRequestDTO;
+import com.gotree.API.entities.DocumentIndex;
+import com.gotree.API.entities.RerenderFailure;
+import com.gotree.API.entities.RerenderJob;
+import com.gotree.API.entities.User;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.enums.RerenderJobStatus;
+import com.gotree.API.repositories.DocumentIndexRepository;
+import com.gotree.API.repositories.RerenderJobRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Re-renderização em lote dos PDFs, disparada pelo admin após mudança de template ou da logo.
+ *
+ * O job percorre os documentos do filtro no índice (tb_document_index) em lotes ordenados por ID.
+ * Cada lote é processado pelos workers do job (paralelismo configurável) e, ao final, o progresso e o
+ * checkpoint (último ID do lote) são gravados. Pausar, cancelar ou reiniciar a aplicação interrompe o
+ * job no checkpoint; ao retomar (ou na subida, para jobs RUNNING) ele continua do lote seguinte.
+ *
+ * Cada documento é regerado pelo próprio serviço do tipo: o arquivo novo é escrito num temporário e
+ * movido, e só então o pdfPath é trocado. AEP e checklist passam pelo cache de PDFs, então os que
+ * já estão atualizados não são renderizados de novo. As falhas ficam registradas no job e o PDF
+ * anterior continua valendo.
+ */
+@Service
+public class RerenderJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RerenderJobService.class);
+    private static final int MAX_FAILURE_MESSAGE = 500;
+
+    private record Outcome(DocumentIndex document, boolean rendered, String error) {
+    }
+
+    private final RerenderJobRepository jobRepository;
+    private final DocumentIndexRepository documentIndexRepository;
+    private final VisitPdfRenderService visitPdfRenderService;
+    private final AepService aepService;
+    private final RiskChecklistService riskChecklistService;
+    private final ExecutorService coordinator;
+    private final TransactionTemplate transaction;
+    private final int defaultParallelism;
+    private final int batchSize;
+
+    private final Counter rendered;
+    private final Counter unchanged;
+    private final Counter failed;
+
+    // Jobs com coordenação em andamento nesta instância (evita rodar o mesmo job duas vezes)
+    private final Set<Long> activeJobs = ConcurrentHashMap.newKeySet();
+
+    public RerenderJobService(RerenderJobRepository jobRepository,
+                              DocumentIndexRepository documentIndexRepository,
+                              VisitPdfRenderService visitPdfRenderService,
+                              AepService aepService,
+                              RiskChecklistService riskChecklistService,
+                              @Qualifier("rerenderJobExecutor") ExecutorService coordinator,
+                              PlatformTransactionManager transactionManager,
+                              MeterRegistry meterRegistry,
+                              @Value("${app.rerender.default-parallelism:2}") int defaultParallelism,
+                              @Value("${app.rerender.batch-size:50}") int batchSize) {
+        this.jobRepository = jobRepository;
+        this.documentIndexRepository = documentIndexRepository;
+        this.visitPdfRenderService = visitPdfRenderService;
+        this.aepService = aepService;
+        this.riskChecklistService = riskChecklistService;
+        this.coordinator = coordinator;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.defaultParallelism = defaultParallelism;
+        this.batchSize = batchSize;
+
+        this.rendered = documentsCounter(meterRegistry, "rendered");
+        this.unchanged = documentsCounter(meterRegistry, "unchanged");
+        this.failed = documentsCounter(meterRegistry, "failed");
+    }
+
+    private static Counter documentsCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("pdf.rerender.documents")
+                .description("Documentos processados pelos jobs de re-renderização, por resultado")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // ===================================================================================
+    // 1. COMANDOS DO ADMIN
+    // ===================================================================================
+
+    public RerenderJobDTO start(RerenderJobRequestDTO request, User admin) {
+        DocumentType type = null;
+        if (request.getType() != null && !request.getType().isBlank()) {
+            type = DocumentType.fromCode(request.getType());
+            if (type == null) throw new IllegalArgumentException("Tipo de documento inválido: " + request.getType());
+        }
+        if (request.getStartDate() != null && request.getEndDate() != null
+                && request.getStartDate().isAfter(request.getEndDate())) {
+            throw new IllegalArgumentException("A data inicial deve ser anterior à data final.");
+        }
+
+        RerenderJob job = new RerenderJob();
+        job.setStatus(RerenderJobStatus.RUNNING);
+        job.setDocumentType(type);
+        job.setCompanyId(request.getCompanyId());
+        job.setStartDate(request.getStartDate());
+        job.setEndDate(request.getEndDate());
+        job.setParallelism(request.getParallelism() != null ? request.getParallelism() : defaultParallelism);
+        job.setRequestedBy(admin.getName());
+        job.setCreatedAt(LocalDateTime.now());
+        job.setTotalDocuments(documentIndexRepository.count(filters(job)));
+        RerenderJob saved = jobRepository.save(job);
+
+        logger.info("Job de re-renderização {} criado por {}: {} documento(s).",
+                saved.getId(), saved.getRequestedBy(), saved.getTotalDocuments());
+        launch(saved.getId());
+        return toDTO(saved, false);
+    }
+
+    /**
+     * Pede a pausa: o job para ao concluir o lote atual (checkpoint).
+     */
+    public RerenderJobDTO pause(Long jobId) {
+        return changeStatus(jobId, RerenderJobStatus.PAUSED, Set.of(RerenderJobStatus.RUNNING));
+    }
+
+    /**
+     * Retoma um job pausado (ou que falhou) a partir do último checkpoint.
+     */
+    public RerenderJobDTO resume(Long jobId) {
+        RerenderJobDTO dto = changeStatus(jobId, RerenderJobStatus.RUNNING,
+                Set.of(RerenderJobStatus.PAUSED, RerenderJobStatus.FAILED));
+        launch(jobId);
+        return dto;
+    }
+
+    public RerenderJobDTO cancel(Long jobId) {
+        return changeStatus(jobId, RerenderJobStatus.CANCELLED,
+                Set.of(RerenderJobStatus.RUNNING, RerenderJobStatus.PAUSED, RerenderJobStatus.FAILED));
+    }
+
+    public List<RerenderJobDTO> findAll() {
+        return transaction.execute(status -> jobRepository.findAllByOrderByCreatedAtDesc().stream()
+                .map(job -> toDTO(job, false))
+                .toList());
+    }
+
+    public RerenderJobDTO findById(Long jobId) {
+        return transaction.execute(status -> toDTO(findJob(jobId), true));
+    }
+
+    private RerenderJobDTO changeStatus(Long jobId, RerenderJobStatus target, Set<RerenderJobStatus> allowedFrom) {
+        synchronized (activeJobs) {
+            return transaction.execute(status -> {
+                RerenderJob job = findJob(jobId);
+                if (!allowedFrom.contains(job.getStatus())) {
+                    throw new IllegalStateException("Não é possível alterar um job " + job.getStatus() + " para " + target + ".");
+                }
+                job.setStatus(target);
+                if (target == RerenderJobStatus.CANCELLED) job.setFinishedAt(LocalDateTime.now());
+                if (target == RerenderJobStatus.RUNNING) job.setLastError(null);
+                return toDTO(jobRepository.save(job), false);
+            });
+        }
+    }
+
+    /**
+     * Jobs que estavam RUNNING quando a aplicação parou continuam do último checkpoint.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeRunning() {
+        for (RerenderJob job : jobRepository.findByStatus(RerenderJobStatus.RUNNING)) {
+            logger.info("Retomando o job de re-renderização {} a partir do checkpoint {}.", job.getId(), job.getLastIndexId());
+            launch(job.getId());
+        }
+    }
+
+    // ===================================================================================
+    // 2. EXECUÇÃO
+    // ===================================================================================
+
+    private void launch(Long jobId) {
+        synchronized (activeJobs) {
+            // Já em execução (ex: pausa e retomada antes do checkpoint): o coordenador atual continua
+            if (!activeJobs.add(jobId)) return;
+        }
+        coordinator.execute(() -> run(jobId));
+    }
+
+    private void run(Long jobId) {
+        RerenderJob job = jobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            activeJobs.remove(jobId);
+            return;
+        }
+
+        // true quando checkpoint/finish já liberaram o job (junto com a gravação do status)
+        boolean released = false;
+        try (ExecutorService workers = Executors.newFixedThreadPool(job.getParallelism(),
+                Thread.ofPlatform().name("rerender-" + jobId + "-", 0).factory())) {
+            Specification<DocumentIndex> filters = filters(job);
+            Long checkpoint = job.getLastIndexId();
+
+            while (true) {
+                List<DocumentIndex> batch = documentIndexRepository.findBy(
+                        filters.and(DocumentIndexRepository.idAfter(checkpoint)),
+                        query -> query.sortBy(Sort.by("id")).limit(batchSize).all());
+                if (batch.isEmpty()) {
+                    finish(jobId, RerenderJobStatus.COMPLETED, null);
+                    released = true;
+                    return;
+                }
+
+                long startNanos = System.nanoTime();
+                List<Future<Outcome>> futures = new ArrayList<>();
+                for (DocumentIndex document : batch) {
+                    futures.add(workers.submit(() -> rerender(document)));
+                }
+                List<Outcome> outcomes = new ArrayList<>();
+                for (Future<Outcome> future : futures) {
+                    outcomes.add(future.get());
+                }
+
+                checkpoint = batch.get(batch.size() - 1).getId();
+                long elapsedMillis = Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+                if (!checkpoint(jobId, checkpoint, outcomes, elapsedMillis)) {
+                    released = true;
+                    return; // Pausado ou cancelado pelo admin
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("Job de re-renderização {} interrompido; continua na próxima subida.", jobId);
+        } catch (Exception e) {
+            logger.error("Job de re-renderização {} falhou.", jobId, e);
+            finish(jobId, RerenderJobStatus.FAILED, e instanceof ExecutionException ? e.getCause() : e);
+            released = true;
+        } finally {
+            if (!released) activeJobs.remove(jobId);
+        }
+    }
+
+    private Outcome rerender(DocumentIndex document) {
+        try {
+            boolean regenerated = switch (document.getDocumentType()) {
+                case VISIT -> visitPdfRenderService.rerender(document.getDocumentId());
+                case AEP -> aepService.refreshPdf(document.getDocumentId());
+                case RISK -> riskChecklistService.refreshPdf(document.getDocumentId());
+            };
+            (regenerated ? rendered : unchanged).increment();
+            return new Outcome(document, regenerated, null);
+        } catch (Exception e) {
+            failed.increment();
+            logger.warn("Re-renderização falhou: {} {}: {}", document.getDocumentType(), document.getDocumentId(), e.getMessage());
+            return new Outcome(document, false, e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Grava o progresso do lote e o checkpoint.
+     *
+     * @return true se o job deve continuar (ainda RUNNING)
+     */
+    private boolean checkpoint(Long jobId, Long lastIndexId, List<Outcome> outcomes, long elapsedMillis) {
+        synchronized (activeJobs) {
+            Boolean keepRunning = transaction.execute(status -> {
+                RerenderJob job = findJob(jobId);
+                job.setLastIndexId(lastIndexId);
+                job.setActiveMillis(job.getActiveMillis() + elapsedMillis);
+                job.setProcessedDocuments(job.getProcessedDocuments() + outcomes.size());
+                for (Outcome outcome : outcomes) {
+                    if (outcome.rendered()) job.setRenderedDocuments(job.getRenderedDocuments() + 1);
+                    if (outcome.error() != null) {
+                        job.setFailedDocuments(job.getFailedDocuments() + 1);
+                        job.getFailures().add(new RerenderFailure(outcome.document().getDocumentType(),
+                                outcome.document().getDocumentId(), truncate(outcome.error()), LocalDateTime.now()));
+                    }
+                }
+                jobRepository.save(job);
+                return job.getStatus() == RerenderJobStatus.RUNNING;
+            });
+            boolean running = Boolean.TRUE.equals(keepRunning);
+            // Removido aqui, junto com a leitura do status, para que um "resume" logo depois inicie outro coordenador
+            if (!running) activeJobs.remove(jobId);
+            return running;
+        }
+    }
+
+    private void finish(Long jobId, RerenderJobStatus finalStatus, Throwable error) {
+        synchronized (activeJobs) {
+            try {
+                transaction.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(job -> {
+                    if (job.getStatus() != RerenderJobStatus.RUNNING) return; // Pausado/cancelado no meio do caminho
+                    job.setStatus(finalStatus);
+                    job.setFinishedAt(LocalDateTime.now());
+                    if (error != null) job.setLastError(truncate(String.valueOf(error.getMessage())));
+                    jobRepository.save(job);
+                    logger.info("Job de re-renderização {} finalizado como {}: {} processado(s), {} regerado(s), {} falha(s).",
+                            jobId, finalStatus, job.getProcessedDocuments(), job.getRenderedDocuments(), job.getFailedDocuments());
+                }));
+            } finally {
+                activeJobs.remove(jobId);
+            }
+        }
+    }
+
+    // ===================================================================================
+    // 3. HELPERS
+    // ===================================================================================
+
+    private Specification<DocumentIndex> filters(RerenderJob job) {
+        return DocumentIndexRepository.filtered(null, job.getDocumentType(), null, job.getStartDate(), job.getEndDate())
+                .and(DocumentIndexRepository.ofCompany(job.getCompanyId()));
+    }
+
+    private RerenderJob findJob(Long jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Job de re-renderização com ID " + jobId + " não encontrado."));
+    }
+
+    private RerenderJobDTO toDTO(RerenderJob job, boolean withFailures) {
+        RerenderJobDTO dto = new RerenderJobDTO();
+        dto.setId(job.getId());
+        dto.setStatus(job.getStatus());
+        dto.setType(job.getDocumentType() != null ? job.getDocumentType().getCode() : null);
+        dto.setCompanyId(job.getCompanyId());
+        dto.setStartDate(job.getStartDate());
+        dto.setEndDate(job.getEndDate());
+        dto.setParallelism(job.getParallelism());
+        dto.setTotalDocuments(job.getTotalDocuments());
+        dto.setProcessedDocuments(job.getProcessedDocuments());
+        dto.setRenderedDocuments(job.getRenderedDocuments());
+        dto.setFailedDocuments(job.getFailedDocuments());
+        dto.setRequestedBy(job.getRequestedBy());
+        dto.setCreatedAt(job.getCreatedAt());
+        dto.setFinishedAt(job.getFinishedAt());
+        dto.setLastError(job.getLastError());
+
+        long total = job.getTotalDocuments();
+        long processed = job.getProcessedDocuments();
+        // O total é calculado na criação: documentos novos no filtro podem passar de 100%
+        dto.setProgressPercent(total == 0 ? 100.0 : Math.min(100.0, processed * 100.0 / total));
+        if (job.getActiveMillis() > 0) {
+            double perMinute = processed * 60_000.0 / job.getActiveMillis();
+            dto.setDocumentsPerMinute(perMinute);
+            if (job.getStatus() == RerenderJobStatus.RUNNING && perMinute > 0) {
+                dto.setEstimatedSecondsRemaining(Math.round(Math.max(0, total - processed) * 60 / perMinute));
+            }
+        }
+
+        if (withFailures) {
+            dto.setFailures(job.getFailures().stream().map(failure -> {
+                RerenderJobDTO.Failure f = new RerenderJobDTO.Failure();
+                f.setType(failure.getDocumentType() != null ? failure.getDocumentType().getCode() : null);
+                f.setDocumentId(failure.getDocumentId());
+                f.setMessage(failure.getMessage());
+                f.setFailedAt(failure.getFailedAt());
+                return f;
+            }).toList());
+        }
+        return dto;
+    }
+
+    private String truncate(String message) {
+        return message.length() > MAX_FAILURE_MESSAGE ? message.substring(0, MAX_FAILURE_MESSAGE) : message;
+    }
+}
@@ -3,11 +3,14 @@ package com.gotree.API.services;
 import com.gotree.API.dto.risk.EvaluatedFunctionRequestDTO;
 import com.gotree.API.dto.risk.SaveRiskReportRequestDTO;
 import com.gotree.API.entities.*;
+import com.gotree.API.enums.DocumentType;
 import com.gotree.API.repositories.*;
 import com.gotree.API.utils.RiskCatalog;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -30,23 +33,54 @@ public class RiskChecklistService {
     private final UnitRepository unitRepository;
     private final SectorRepository sectorRepository;
     private final ReportService reportService;
-    private final SystemInfoRepository systemInfoRepository; // Para a Logo
+    private final SystemInfoCache systemInfoCache; // Para a Logo
+    private final DocumentIndexService documentIndexService;
+    private final PdfRenderCache pdfRenderCache;
+    private final PdfSingleFlight pdfSingleFlight;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate pdfTransaction;
 
-    @Value("${file.storage.path}")
-    private String fileStoragePath;
+    /**
+     * Entradas do PDF lidas numa transação curta: a renderização roda depois, sem transação aberta e
+     * sem entidade gerenciada que o commit de quem chamou possa gravar com valores antigos.
+     * O "report" de templateData já vem com as associações exibidas no template carregadas.
+     *
+     * @param storedDigest  Digest gravado no checklist na leitura (a gravação só vale se ele não mudou)
+     * @param contentDigest Digest do conteúdo lido
+     * @param templateData  Dados do template; null quando o PDF gravado já é o atual
+     */
+    private record PdfInput(Long id, String pdfPath, String storedDigest, String contentDigest,
+                            Map<String, Object> templateData) {
+
+        boolean isCurrent() {
+            return templateData == null;
+        }
+    }
 
     public RiskChecklistService(OccupationalRiskReportRepository reportRepository,
                                 CompanyRepository companyRepository,
                                 UnitRepository unitRepository,
                                 SectorRepository sectorRepository,
                                 ReportService reportService,
-                                SystemInfoRepository systemInfoRepository) {
+                                SystemInfoCache systemInfoCache,
+                                DocumentIndexService documentIndexService,
+                                PdfRenderCache pdfRenderCache,
+                                PdfSingleFlight pdfSingleFlight,
+                                PlatformTransactionManager transactionManager) {
         this.reportRepository = reportRepository;
         this.companyRepository = companyRepository;
         this.unitRepository = unitRepository;
         this.sectorRepository = sectorRepository;
         this.reportService = reportService;
-        this.systemInfoRepository = systemInfoRepository;
+        this.systemInfoCache = systemInfoCache;
+        this.documentIndexService = documentIndexService;
+        this.pdfRenderCache = pdfRenderCache;
+        this.pdfSingleFlight = pdfSingleFlight;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Transação própria e curta para o PDF gerado no download: vale mesmo dentro de transação somente leitura
+        this.pdfTransaction = new TransactionTemplate(transactionManager);
+        this.pdfTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     /**
@@ -96,16 +130,15 @@ public class RiskChecklistService {
     }
 
     /**
-     * ATUALIZA UM RELATÓRIO EXISTENTE.
-     * Regra de Ouro: Se já estiver assinado, lança erro e impede edição.
-     */
-    /**
-     * Atualiza um relatório existente e regenera seu PDF.
+     * Atualiza um relatório existente. O PDF não é gerado aqui: a edição só grava o digest do
+     * conteúdo impresso, e o PDF é regerado no próximo acesso (loadOrGeneratePdf) se esse digest
+     * mudou. Edições que não alteram o PDF, ou checklists que ninguém baixa depois, não custam
+     * nenhuma renderização.
      *
      * @param id          ID do relatório a ser atualizado
      * @param dto         Objeto contendo os novos dados do relatório
      * @param currentUser Usuário atual realizando a atualização
-     * @return Relatório atualizado com novo PDF gerado
+     * @return Relatório atualizado
      * @throws RuntimeException      se o relatório não for encontrado
      * @throws SecurityException     se o usuário não tiver permissão
      * @throws IllegalStateException se o relatório já estiver assinado
@@ -148,9 +181,11 @@ public class RiskChecklistService {
         // Adiciona as novas
         mapFunctionsDtoToEntity(dto.getFunctions(), report);
 
-        // 7. Salva e Regenera PDF
+        // 7. Salva com o digest do novo conteúdo (o PDF antigo deixa de valer se o digest mudou)
+        report.setContentDigest(contentDigest(report, functionsData(report)));
         OccupationalRiskReport updatedReport = reportRepository.save(report);
-        return generatePdf(updatedReport);
+        documentIndexService.indexRisk(updatedReport);
+        return updatedReport;
     }
 
     /**
@@ -180,6 +215,7 @@ public class RiskChecklistService {
         }
 
         reportRepository.delete(report);
+        documentIndexService.remove(DocumentType.RISK, id);
     }
 
     @Transactional(readOnly = true)
@@ -246,22 +282,171 @@ public class RiskChecklistService {
     }
 
     /**
-     * Gera o arquivo PDF do relatório usando template HTML.
+     * Devolve o PDF do checklist, gerando-o no primeiro acesso após uma edição que mudou o conteúdo
+     * impresso (ou se o arquivo não existe mais). Acessos simultâneos ao mesmo checklist
+     * compartilham uma única geração (PdfSingleFlight); quem esperou uma geração iniciada com outra
+     * leitura do checklist confere o PDF recebido e gera de novo se ele não for do conteúdo atual.
+     * Se o checklist for editado durante a geração, gera mais uma vez com o conteúdo novo.
+     *
+     * @param id ID do checklist
+     * @return Caminho do PDF atual
+     * @throws RuntimeException      se o relatório não for encontrado
+     * @throws IllegalStateException se o checklist mudou também durante a segunda geração
+     */
+    public Path loadOrGeneratePdf(Long id) {
+        PdfInput input = readPdfInput(id, false);
+        if (input.isCurrent()) return Paths.get(input.pdfPath());
+
+        Path path = pdfSingleFlight.run(DocumentType.RISK, id, () -> renderLatest(id, input));
+        if (pdfRenderCache.isCurrent(path.toString(), renderDigest(input.contentDigest()))) return path;
+
+        PdfInput latest = readPdfInput(id, false);
+        if (latest.isCurrent()) return Paths.get(latest.pdfPath());
+        return pdfSingleFlight.run(DocumentType.RISK, id, () -> renderLatest(id, latest));
+    }
+
+    /**
+     * Gera e grava o PDF das entradas lidas; se o checklist for editado durante a geração, gera
+     * mais uma vez com o conteúdo novo.
+     */
+    private Path renderLatest(Long id, PdfInput input) {
+        Path path = renderAndStore(input, false);
+        if (path != null) return path;
+
+        PdfInput latest = readPdfInput(id, false);
+        if (latest.isCurrent()) return Paths.get(latest.pdfPath());
+        path = renderAndStore(latest, false);
+        if (path == null) {
+            throw new IllegalStateException("O checklist foi alterado durante a geração do PDF. Tente novamente.");
+        }
+        return path;
+    }
+
+    /**
+     * Regera o PDF do checklist se ele não corresponder mais ao template/dados atuais
+     * (usado pela re-renderização em lote; espera vaga na geração em vez de receber 429).
+     * Renderiza fora de transação e grava só caminho e digest: uma edição feita durante a
+     * renderização não é sobrescrita (o PDF gerado é descartado e a edição gera o seu).
+     *
+     * @return true se um novo PDF foi gerado e gravado
+     */
+    public boolean refreshPdf(Long id) {
+        // Recalcula o digest: pega também mudanças fora da edição (técnico, catálogo de riscos)
+        PdfInput input = readPdfInput(id, true);
+        if (input.isCurrent()) return false;
+        return renderAndStore(input, true) != null;
+    }
+
+    /**
+     * Gera o arquivo PDF do relatório e grava o caminho e o digest do conteúdo.
      *
      * @param report Relatório para o qual o PDF será gerado
      * @return Relatório atualizado com o caminho do novo PDF
      * @throws RuntimeException se houver erro ao salvar o PDF
      */
     private OccupationalRiskReport generatePdf(OccupationalRiskReport report) {
+        List<Map<String, Object>> functionsData = functionsData(report);
+        String contentDigest = contentDigest(report, functionsData);
+        Path path = renderPdf(report, functionsData, contentDigest);
+
+        // Apaga PDF antigo se foi substituído (para economizar espaço/limpeza)
+        pdfRenderCache.deleteReplaced(report.getPdfPath(), path);
+
+        report.setPdfPath(path.toString());
+        report.setContentDigest(contentDigest);
+        OccupationalRiskReport savedReport = reportRepository.save(report);
+
+        // Atualiza o índice de documentos
+        documentIndexService.indexRisk(savedReport);
+        return savedReport;
+    }
+
+    /**
+     * Lê as entradas do PDF numa transação curta somente leitura.
+     *
+     * @param recheckContent true para recalcular o digest mesmo com PDF válido para o digest gravado
+     *                       (pega mudanças fora da edição, como nome do técnico ou catálogo de riscos)
+     */
+    private PdfInput readPdfInput(Long id, boolean recheckContent) {
+        return readOnlyTransaction.execute(status -> {
+            OccupationalRiskReport report = reportRepository.findById(id)
+                    .orElseThrow(() -> new RuntimeException("Relatório não encontrado."));
+            String storedDigest = report.getContentDigest();
+            if (!recheckContent && isPdfCurrent(report)) {
+                return new PdfInput(id, report.getPdfPath(), storedDigest, storedDigest, null);
+            }
+
+            // O digest lê todos os campos exibidos no template: as associações LAZY ficam carregadas
+            List<Map<String, Object>> functionsData = functionsData(report);
+            String contentDigest = contentDigest(report, functionsData);
+            if (contentDigest.equals(storedDigest) && isPdfCurrent(report)) {
+                return new PdfInput(id, report.getPdfPath(), storedDigest, contentDigest, null);
+            }
+            return new PdfInput(id, report.getPdfPath(), storedDigest, contentDigest,
+                    templateData(report, functionsData));
+        });
+    }
+
+    /**
+     * Renderiza fora de transação e grava caminho e digest em transação própria, somente se o
+     * checklist não foi editado com outro conteúdo durante a renderização.
+     *
+     * @return Caminho do PDF gravado, ou null se o checklist mudou ou foi excluído (o arquivo
+     *         gerado é descartado)
+     */
+    private Path renderAndStore(PdfInput input, boolean background) {
+        Path path = pdfRenderCache.getOrRender(renderDigest(input.contentDigest()),
+                target -> reportService.renderPdfToFile("risk-checklist-template", input.templateData(), target, background));
+        String newPath = path.toString();
+
+        String currentPath = pdfTransaction.execute(status -> {
+            if (reportRepository.updatePdfIfDigestUnchanged(input.id(), input.storedDigest(), newPath,
+                    input.contentDigest()) == 0) {
+                return reportRepository.findPdfPathById(input.id());
+            }
+            // Lido nesta transação, já com o caminho novo (o índice guarda o pdfPath)
+            reportRepository.findById(input.id()).ifPresent(documentIndexService::indexRisk);
+            return newPath;
+        });
+
+        if (newPath.equals(currentPath)) {
+            pdfRenderCache.deleteReplaced(input.pdfPath(), path);
+            return path;
+        }
+        pdfRenderCache.deleteReplaced(newPath, currentPath != null ? Paths.get(currentPath).toAbsolutePath() : null);
+        return null;
+    }
+
+    /**
+     * O PDF gravado vale enquanto corresponder ao digest do conteúdo (gravado na última edição ou
+     * geração), ao template e aos dados da empresa emissora, e o arquivo existir.
+     */
+    private boolean isPdfCurrent(OccupationalRiskReport report) {
+        return report.getContentDigest() != null
+                && pdfRenderCache.isCurrent(report.getPdfPath(), renderDigest(report.getContentDigest()));
+    }
+
+    /**
+     * Mesmas entradas = mesmo arquivo: só renderiza se o digest ainda não estiver no cache.
+     */
+    private Path renderPdf(OccupationalRiskReport report, List<Map<String, Object>> functionsData,
+                           String contentDigest) {
+        Map<String, Object> templateData = templateData(report, functionsData);
+        return pdfRenderCache.getOrRender(renderDigest(contentDigest),
+                target -> reportService.renderPdfToFile("risk-checklist-template", templateData, target, false));
+    }
+
+    private Map<String, Object> templateData(OccupationalRiskReport report, List<Map<String, Object>> functionsData) {
         Map<String, Object> templateData = new HashMap<>();
         templateData.put("report", report);
+        templateData.put(ReportService.DOCUMENT_ID, report.getId());
 
         // Busca Dados da Go-Tree (Logo, CNPJ, Nome)
-        SystemInfo myInfo = systemInfoRepository.findFirst();
-        if (myInfo != null) {
-            templateData.put("generatingCompanyName", myInfo.getCompanyName());
-            templateData.put("generatingCompanyCnpj", myInfo.getCnpj());
-            templateData.put("generatingCompanyLogo", myInfo.getLogoBase64());
+        SystemInfoCache.Snapshot myInfo = systemInfoCache.get();
+        if (myInfo.fromDatabase()) {
+            templateData.put("generatingCompanyName", myInfo.companyName());
+            templateData.put("generatingCompanyCnpj", myInfo.cnpj());
+            templateData.put("generatingCompanyLogo", myInfo.logoBase64());
         } else {
             // Fallback
             templateData.put("generatingCompanyName", "Go-Tree Consultoria");
@@ -269,7 +454,14 @@ public class RiskChecklistService {
             templateData.put("generatingCompanyLogo", null);
         }
 
-        // Prepara dados dos riscos para o Template (Converte IDs em Textos)
+        templateData.put("functionsData", functionsData);
+        return templateData;
+    }
+
+    /**
+     * Prepara dados dos riscos para o Template (Converte IDs em Textos).
+     */
+    private List<Map<String, Object>> functionsData(OccupationalRiskReport report) {
         List<Map<String, Object>> functionsData = new ArrayList<>();
         for (EvaluatedFunction func : report.getEvaluatedFunctions()) {
             Map<String, Object> funcMap = new HashMap<>();
@@ -285,28 +477,41 @@ public class RiskChecklistService {
             funcMap.put("risks", risks);
             functionsData.add(funcMap);
         }
-        templateData.put("functionsData", functionsData);
-
-        // Gera PDF
-        byte[] pdfBytes = reportService.generatePdfFromHtml("risk-checklist-template", templateData);
-
-        try {
-            // Apaga PDF antigo se existir (para economizar espaço/limpeza)
-            if (report.getPdfPath() != null) {
-                Files.deleteIfExists(Paths.get(report.getPdfPath()));
-            }
-
-            String fileName = "RISK_CHECKLIST_" + report.getId() + "_" + UUID.randomUUID() + ".pdf";
-            Path path = Paths.get(fileStoragePath, fileName);
-            Files.createDirectories(path.getParent());
-            Files.write(path, pdfBytes);
-
-            report.setPdfPath(path.toString());
-            return reportRepository.save(report);
+        return functionsData;
+    }
 
-        } catch (IOException e) {
-            throw new RuntimeException("Erro ao salvar PDF: " + e.getMessage());
+    /**
+     * Digest do conteúdo impresso no checklist: os campos do relatório que o template exibe,
+     * as funções com os riscos já resolvidos e a versão do catálogo de riscos. Campos que não
+     * aparecem no PDF (título, envio ao cliente) ficam de fora, então alterá-los não gera PDF.
+     */
+    private String contentDigest(OccupationalRiskReport report, List<Map<String, Object>> functionsData) {
+        Map<String, Object> model = new HashMap<>();
+        model.put("id", report.getId());
+        model.put("inspectionDate", report.getInspectionDate());
+        model.put("companyName", report.getCompany() != null ? report.getCompany().getName() : null);
+        model.put("companyCnpj", report.getCompany() != null ? report.getCompany().getCnpj() : null);
+        model.put("unitName", report.getUnit() != null ? report.getUnit().getName() : null);
+        model.put("sectorName", report.getSector() != null ? report.getSector().getName() : null);
+        if (report.getTechnician() != null) {
+            model.put("technicianName", report.getTechnician().getName());
+            model.put("technicianConselhoClasse", report.getTechnician().getConselhoClasse());
+            model.put("technicianSiglaConselhoClasse", report.getTechnician().getSiglaConselhoClasse());
+            model.put("technicianEspecialidade", report.getTechnician().getEspecialidade());
         }
+        model.put("technicianSignature", report.getTechnicianSignatureImageBase64());
+        model.put("technicianSignedAt", report.getTechnicianSignedAt());
+        model.put("functions", functionsData);
+        model.put("riskCatalogVersion", RiskCatalog.VERSION);
+        return pdfRenderCache.modelDigest(model);
+    }
+
+    /**
+     * Digest do PDF: o conteúdo mais o template; os dados da empresa emissora (SystemInfo)
+     * entram pelo próprio PdfRenderCache.
+     */
+    private String renderDigest(String contentDigest) {
+        return pdfRenderCache.digest("risk-checklist-template", Map.of("content", contentDigest));
     }
 
     /**
@@ -0,0 +1,171 @@
+package com.gotree.API.services;
+
+import com.gotree.API.entities.SystemInfo;
+import com.gotree.API.events.SystemInfoChangedEvent;
+import com.gotree.API.repositories.SystemInfoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.HexFormat;
+
+/**
+ * Snapshot em memória dos dados da empresa emissora (SystemInfo) usados em todos os PDFs.
+ *
+ * Carregado na subida e descartado quando o registro muda (SystemInfoChangedEvent, disparado pelo
+ * listener JPA da entidade); a próxima leitura recarrega. Guarda a logo já sem o prefixo data-URL,
+ * os bytes decodificados (entregues ao CachingUserAgent pelo PdfRendererFactory, para que a logo não
+ * seja decodificada de novo a cada PDF) e um fingerprint para o cache de PDFs, então a renderização
+ * não faz nenhuma consulta ao banco para a identidade visual.
+ *
+ * Só é guardado o que veio de uma leitura bem-sucedida (com ou sem registro): se a consulta falhar,
+ * o fallback estático atende apenas aquela chamada e a seguinte tenta o banco de novo.
+ */
+@Service
+public class SystemInfoCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(SystemInfoCache.class);
+    private static final String STATIC_LOGO = "static/img/logo.png";
+
+    // Mesmo prefixo que os templates colocam antes de generatingCompanyLogo no th:src
+    private static final String LOGO_DATA_URI_PREFIX = "data:image/png;base64,";
+
+    /**
+     * Dados prontos para os templates.
+     *
+     * @param fromDatabase false quando o banco ainda não tem registro e a logo estática foi usada
+     * @param logoBase64   logo sem prefixo data-URL (null se não houver)
+     * @param logoBytes    logo decodificada (null se não houver)
+     * @param fingerprint  SHA-256 de nome, CNPJ e logo (entra no digest do PdfRenderCache)
+     */
+    public record Snapshot(boolean fromDatabase, String companyName, String cnpj,
+                           String logoBase64, byte[] logoBytes, String fingerprint) {
+
+        /**
+         * URI da logo exatamente como os templates a montam (null se não houver logo).
+         */
+        public String logoDataUri() {
+            return logoBase64 != null ? LOGO_DATA_URI_PREFIX + logoBase64 : null;
+        }
+    }
+
+    private final SystemInfoRepository systemInfoRepository;
+    private volatile Snapshot snapshot;
+
+    public SystemInfoCache(SystemInfoRepository systemInfoRepository) {
+        this.systemInfoRepository = systemInfoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        get();
+    }
+
+    public Snapshot get() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    SystemInfo info;
+                    try {
+                        info = systemInfoRepository.findFirst();
+                    } catch (Exception e) {
+                        // Falha transitória: o fallback vale só para esta renderização, sem ser guardado,
+                        // e a próxima leitura tenta o banco de novo
+                        logger.error("Erro ao carregar dados do sistema para os relatórios", e);
+                        return fallback();
+                    }
+                    current = load(info);
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Descarta o snapshot após o commit da alteração (ou na hora, fora de transação).
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSystemInfoChanged(SystemInfoChangedEvent event) {
+        synchronized (this) {
+            snapshot = null;
+        }
+        logger.info("SystemInfo alterado: dados da empresa emissora serão recarregados.");
+    }
+
+    private Snapshot load(SystemInfo info) {
+        if (info != null) {
+            String logoBase64 = stripDataUrlPrefix(info.getLogoBase64());
+            if (logoBase64 != null && logoBase64.isBlank()) logoBase64 = null;
+            return snapshot(true, info.getCompanyName(), info.getCnpj(), logoBase64, decode(logoBase64));
+        }
+        // FALLBACK: banco vazio (primeira execução) usa a logo estática como backup
+        logger.warn("SystemInfo não encontrado no banco. Usando logo padrão estática.");
+        return fallback();
+    }
+
+    private Snapshot fallback() {
+        byte[] staticLogo = readStaticLogo();
+        String logoBase64 = staticLogo != null ? Base64.getEncoder().encodeToString(staticLogo) : null;
+        return snapshot(false, null, null, logoBase64, staticLogo);
+    }
+
+    private Snapshot snapshot(boolean fromDatabase, String companyName, String cnpj, String logoBase64, byte[] logoBytes) {
+        return new Snapshot(fromDatabase, companyName, cnpj, logoBase64, logoBytes,
+                fingerprint(fromDatabase, companyName, cnpj, logoBase64));
+    }
+
+    private byte[] decode(String logoBase64) {
+        if (logoBase64 == null) return null;
+        try {
+            return Base64.getMimeDecoder().decode(logoBase64);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Logo do SystemInfo não é um Base64 válido.");
+            return null;
+        }
+    }
+
+    private byte[] readStaticLogo() {
+        ClassPathResource resource = new ClassPathResource(STATIC_LOGO);
+        if (!resource.exists()) return null;
+        try (InputStream in = resource.getInputStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            logger.warn("Logo estática padrão não encontrada.");
+            return null;
+        }
+    }
+
+    private String fingerprint(boolean fromDatabase, String companyName, String cnpj, String logoBase64) {
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            for (String value : new String[]{String.valueOf(fromDatabase), companyName, cnpj, logoBase64}) {
+                byte[] bytes = (value != null ? value : "").getBytes(StandardCharsets.UTF_8);
+                sha.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+                sha.update((byte) ':');
+                sha.update(bytes);
+            }
+            return HexFormat.of().formatHex(sha.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String stripDataUrlPrefix(String dataUrl) {
+        if (dataUrl == null) return null;
+        int commaIndex = dataUrl.indexOf(',');
+        return commaIndex != -1 ? dataUrl.substring(commaIndex + 1) : dataUrl;
+    }
+}
@@ -8,13 +8,17 @@ import com.gotree.API.entities.TechnicalVisit;
 import com.gotree.API.entities.Unit;
 import com.gotree.API.entities.User;
 import com.gotree.API.entities.VisitFinding;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.enums.PdfStatus;
 import com.gotree.API.enums.Shift;
+import com.gotree.API.events.VisitPdfRequestedEvent;
 import com.gotree.API.repositories.AgendaEventRepository;
 import com.gotree.API.repositories.CompanyRepository;
 import com.gotree.API.repositories.SectorRepository;
 import com.gotree.API.repositories.TechnicalVisitRepository;
 import com.gotree.API.repositories.UnitRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,7 +29,7 @@ import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Base64;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +49,9 @@ public class TechnicalVisitService {
     private final UnitRepository unitRepository;
     private final SectorRepository sectorRepository;
     private final AgendaEventRepository agendaEventRepository;
+    private final DocumentIndexService documentIndexService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FindingPhotoService findingPhotoService;
 
 
     @Value("${file.storage.path}")
@@ -61,13 +68,19 @@ public class TechnicalVisitService {
                                  ReportService reportService,
                                  UnitRepository unitRepository,
                                  SectorRepository sectorRepository,
-                                 AgendaEventRepository agendaEventRepository) {
+                                 AgendaEventRepository agendaEventRepository,
+                                 DocumentIndexService documentIndexService,
+                                 ApplicationEventPublisher eventPublisher,
+                                 FindingPhotoService findingPhotoService) {
         this.technicalVisitRepository = technicalVisitRepository;
         this.companyRepository = companyRepository;
         this.reportService = reportService;
         this.unitRepository = unitRepository;
         this.sectorRepository = sectorRepository;
         this.agendaEventRepository = agendaEventRepository;
+        this.documentIndexService = documentIndexService;
+        this.eventPublisher = eventPublisher;
+        this.findingPhotoService = findingPhotoService;
 
     }
 
@@ -81,6 +94,67 @@ public class TechnicalVisitService {
      */
     @Transactional
     public TechnicalVisit createAndGeneratePdf(CreateTechnicalVisitRequestDTO dto, User technician) {
+        // 1 a 3. Montar a visita a partir do DTO
+        TechnicalVisit visit = buildVisit(dto, technician);
+
+        // 4. Salvar tudo no banco de dados pela primeira vez para gerar os IDs
+        TechnicalVisit savedVisit = technicalVisitRepository.save(visit);
+
+        // 5. Gerar o PDF e salvar apenas o nome do arquivo
+        savedVisit.setPdfPath(writePdf(savedVisit, false));
+        savedVisit.setPdfStatus(PdfStatus.READY);
+        TechnicalVisit finalVisit = technicalVisitRepository.save(savedVisit); // Salva novamente com o caminho do PDF
+
+        // 6. Atualiza o índice de documentos
+        documentIndexService.indexVisit(finalVisit);
+        return finalVisit;
+    }
+
+    /**
+     * Modo assíncrono: salva a visita com o PDF PENDING e devolve a resposta sem esperar a renderização.
+     * O PDF é gerado pelo VisitPdfRenderService depois do commit.
+     *
+     * @param dto        Objeto contendo os dados da visita técnica a ser criada
+     * @param technician Usuário técnico responsável pela visita
+     * @return A entidade TechnicalVisit salva (ainda sem pdfPath)
+     */
+    @Transactional
+    public TechnicalVisit createForAsyncPdf(CreateTechnicalVisitRequestDTO dto, User technician) {
+        TechnicalVisit visit = buildVisit(dto, technician);
+        visit.setPdfStatus(PdfStatus.PENDING);
+        TechnicalVisit savedVisit = technicalVisitRepository.save(visit);
+
+        // Já aparece nas listagens; o caminho do PDF entra no índice quando a renderização terminar
+        documentIndexService.indexVisit(savedVisit);
+        eventPublisher.publishEvent(new VisitPdfRequestedEvent(savedVisit.getId()));
+        return savedVisit;
+    }
+
+    /**
+     * Renderiza o PDF da visita e grava no diretório de arquivos.
+     * Não depende de transação: a visita deve vir com as associações usadas pelo template carregadas.
+     *
+     * @param background true quando chamado pela fila assíncrona (espera vaga em vez de receber 429)
+     * @return Nome do arquivo gerado (relativo a file.storage.path)
+     */
+    public String writePdf(TechnicalVisit visit, boolean background) {
+        Map<String, Object> templateData = new HashMap<>();
+        templateData.put("visit", visit);
+        templateData.put(ReportService.DOCUMENT_ID, visit.getId());
+//        templateData.put("generatingCompanyName", generatingCompanyName);
+//        templateData.put("generatingCompanyCnpj", generatingCompanyCnpj);
+
+        // Renderiza direto no arquivo final (temporário + move), sem o PDF inteiro na memória
+        String fileName = "technical_visit_" + visit.getId() + "_" + UUID.randomUUID() + ".pdf";
+        reportService.renderPdfToFile("visit-report-template", templateData,
+                Paths.get(fileStoragePath, fileName), background);
+        return fileName;
+    }
+
+    /**
+     * Mapeia o DTO para uma nova visita (ainda não salva), validando empresa e agenda.
+     */
+    private TechnicalVisit buildVisit(CreateTechnicalVisitRequestDTO dto, User technician) {
         // 1. Buscar a empresa cliente
         Company clientCompany = companyRepository.findById(dto.getClientCompanyId())
                 .orElseThrow(() -> new RuntimeException("Empresa cliente com ID " + dto.getClientCompanyId() + " não encontrada."));
@@ -147,30 +221,7 @@ public class TechnicalVisitService {
             });
         }
 
-        // 4. Salvar tudo no banco de dados pela primeira vez para gerar os IDs
-        TechnicalVisit savedVisit = technicalVisitRepository.save(visit);
-
-        // 5. Gerar o PDF
-        Map<String, Object> templateData = new HashMap<>();
-        templateData.put("visit", savedVisit);
-//        templateData.put("generatingCompanyName", generatingCompanyName);
-//        templateData.put("generatingCompanyCnpj", generatingCompanyCnpj);
-
-        byte[] pdfBytes = reportService.generatePdfFromHtml("visit-report-template", templateData);
-
-        try {
-            String fileName = "technical_visit_" + savedVisit.getId() + "_" + UUID.randomUUID() + ".pdf";
-            Path path = Paths.get(fileStoragePath, fileName);
-            Files.createDirectories(path.getParent());
-            Files.write(path, pdfBytes);
-
-            // ALTERAÇÃO: Salve apenas o nome do arquivo.
-            savedVisit.setPdfPath(fileName);
-            return technicalVisitRepository.save(savedVisit); // Salva novamente com o caminho do PDF
-
-        } catch (IOException e) {
-            throw new RuntimeException("Falha ao salvar a foto 1 do achado: " + e.getMessage(), e);
-        }
+        return visit;
     }
 
     /**
@@ -182,37 +233,11 @@ public class TechnicalVisitService {
      */
     private VisitFinding mapFindingDtoToEntity(VisitFindingDTO dto) {
         VisitFinding finding = new VisitFinding();
-        // Lógica para salvar a IMAGEM 1
-        if (dto.getPhotoBase64_1() != null && !dto.getPhotoBase64_1().isEmpty()) {
-            try {
-                // Limpa o prefixo e decodifica
-                byte[] imageBytes = Base64.getDecoder().decode(stripDataUrlPrefix(dto.getPhotoBase64_1()));
-                String imageFileName = "finding_" + UUID.randomUUID() + ".jpg";
-                Path imagePath = Paths.get(fileStoragePath, "visit_photos", imageFileName);
-                Files.createDirectories(imagePath.getParent());
-                Files.write(imagePath, imageBytes);
-                // Salva o caminho absoluto do arquivo, que será usado com 'file:///' no template
-                finding.setPhotoPath1(imagePath.toAbsolutePath().toString().replace("\\", "/"));
-            } catch (IOException e) {
-                throw new RuntimeException("Erro ao processar a imagem do achado. Verifique se o arquivo é válido.", e);
-            }
-        }
-
-        // LÓGICA ADICIONADA PARA A IMAGEM 2
-        if (dto.getPhotoBase64_2() != null && !dto.getPhotoBase64_2().isEmpty()) {
-            try {
-                // Limpa o prefixo e decodifica
-                byte[] imageBytes = Base64.getDecoder().decode(stripDataUrlPrefix(dto.getPhotoBase64_2()));
-                String imageFileName = "finding_" + UUID.randomUUID() + ".jpg";
-                Path imagePath = Paths.get(fileStoragePath, "visit_photos", imageFileName);
-                Files.createDirectories(imagePath.getParent()); // Não há problema em chamar de novo
-                Files.write(imagePath, imageBytes);
-                // Salva o caminho absoluto do arquivo
-                finding.setPhotoPath2(imagePath.toAbsolutePath().toString().replace("\\", "/"));
-            } catch (IOException e) {
-                throw new RuntimeException("Erro ao processar a imagem do achado. Verifique se o arquivo é válido.", e);
-            }
-        }
+        // Reduz, corrige a orientação e grava as duas fotos em paralelo
+        List<String> photoPaths = findingPhotoService.storePhotos(
+                Arrays.asList(dto.getPhotoBase64_1(), dto.getPhotoBase64_2()));
+        finding.setPhotoPath1(photoPaths.get(0));
+        finding.setPhotoPath2(photoPaths.get(1));
 
         // Mapeia o resto dos campos
         finding.setDescription(dto.getDescription());
@@ -291,6 +316,7 @@ public class TechnicalVisitService {
 
         // 4. APAGA O REGISTRO DO BANCO DE DADOS
         technicalVisitRepository.deleteById(visitId);
+        documentIndexService.remove(DocumentType.VISIT, visitId);
     }
 
     /**
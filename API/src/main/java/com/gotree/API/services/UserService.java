@@ -49,10 +49,12 @@ public class UserService implements UserDetailsService {
     private final OccupationalRiskReportRepository riskReportRepository;
     private final TechnicalVisitRepository technicalVisitRepository;
     private final ClientRepository clientRepository;
+    private final DocumentIndexService documentIndexService;
 
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder, UserMapper userMapper,
                        AepReportRepository aepReportRepository, OccupationalRiskReportRepository riskReportRepository,
-                       TechnicalVisitRepository technicalVisitRepository, ClientRepository clientRepository) {
+                       TechnicalVisitRepository technicalVisitRepository, ClientRepository clientRepository,
+                       DocumentIndexService documentIndexService) {
         this.passwordEncoder = passwordEncoder;
         this.userRepository = userRepository;
         this.userMapper = userMapper;
@@ -60,6 +62,7 @@ public class UserService implements UserDetailsService {
         this.riskReportRepository = riskReportRepository;
         this.technicalVisitRepository = technicalVisitRepository;
         this.clientRepository = clientRepository;
+        this.documentIndexService = documentIndexService;
     }
 
     public List<User> findAll() {
@@ -146,7 +149,13 @@ public class UserService implements UserDetailsService {
         }
 
         // 6. Salva o usuário atualizado no banco
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+
+        // 7. Propaga o nome para o índice de documentos
+        if (dto.getName() != null) {
+            documentIndexService.renameTechnician(savedUser.getId(), savedUser.getName());
+        }
+        return savedUser;
     }
 
     /**
@@ -0,0 +1,289 @@
+package com.gotree.API.services;
+
+import com.gotree.API.dto.visit.VisitPdfStatusDTO;
+import com.gotree.API.entities.TechnicalVisit;
+import com.gotree.API.entities.User;
+import com.gotree.API.enums.PdfStatus;
+import com.gotree.API.enums.UserRole;
+import com.gotree.API.events.VisitPdfRequestedEvent;
+import com.gotree.API.repositories.TechnicalVisitRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Geração assíncrona do PDF das visitas técnicas.
+ *
+ * A visita é salva com o PDF PENDING e, depois do commit, a renderização entra na fila do
+ * executor limitado "pdfRenderExecutor". A visita é carregada numa transação curta, o PDF é
+ * renderizado sem conexão do banco presa e o resultado (pdfPath + READY) é gravado em outra
+ * transação curta. O front acompanha pelo endpoint de status ou por SSE.
+ */
+@Service
+public class VisitPdfRenderService {
+
+    private static final Logger logger = LoggerFactory.getLogger(VisitPdfRenderService.class);
+    private static final long SSE_TIMEOUT_MS = 120_000;
+
+    private final TechnicalVisitRepository technicalVisitRepository;
+    private final TechnicalVisitService technicalVisitService;
+    private final DocumentIndexService documentIndexService;
+    private final ExecutorService executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate writeTransaction;
+
+    // Clientes SSE aguardando a conclusão, por visita
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    @Value("${file.storage.path}")
+    private String fileStoragePath;
+
+    public VisitPdfRenderService(TechnicalVisitRepository technicalVisitRepository,
+                                 TechnicalVisitService technicalVisitService,
+                                 DocumentIndexService documentIndexService,
+                                 @Qualifier("pdfRenderExecutor") ExecutorService executor,
+                                 PlatformTransactionManager transactionManager) {
+        this.technicalVisitRepository = technicalVisitRepository;
+        this.technicalVisitService = technicalVisitService;
+        this.documentIndexService = documentIndexService;
+        this.executor = executor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    // ===================================================================================
+    // 1. FILA
+    // ===================================================================================
+
+    /**
+     * Só roda após o commit da visita (se a transação for desfeita, nada é renderizado).
+     */
+    @TransactionalEventListener
+    public void onVisitPdfRequested(VisitPdfRequestedEvent event) {
+        enqueue(event.visitId());
+    }
+
+    /**
+     * Visitas que ficaram PENDING quando a aplicação parou voltam para a fila na subida.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        List<Long> pending = technicalVisitRepository.findIdsByPdfStatus(PdfStatus.PENDING);
+        if (!pending.isEmpty()) {
+            logger.info("Retomando a geração de {} PDF(s) de visita pendente(s).", pending.size());
+            pending.forEach(this::enqueue);
+        }
+    }
+
+    /**
+     * Solicita novamente o PDF de uma visita cuja geração falhou.
+     */
+    public VisitPdfStatusDTO retry(Long visitId, User currentUser) {
+        TechnicalVisit visit = findAuthorized(visitId, currentUser);
+        if (visit.getPdfStatus() != PdfStatus.FAILED) {
+            throw new IllegalStateException("Só é possível gerar novamente um PDF com falha.");
+        }
+
+        writeTransaction.executeWithoutResult(status -> updateStatus(visitId, PdfStatus.PENDING));
+        enqueue(visitId);
+        return toStatus(visitId, PdfStatus.PENDING);
+    }
+
+    private void enqueue(Long visitId) {
+        try {
+            executor.execute(() -> render(visitId));
+        } catch (RejectedExecutionException e) {
+            // Fila cheia (ou aplicação desligando): a visita fica FAILED e pode ser solicitada de novo
+            logger.warn("Fila de PDFs cheia. PDF da visita {} não foi agendado.", visitId);
+            fail(visitId);
+        }
+    }
+
+    // ===================================================================================
+    // 2. RENDERIZAÇÃO
+    // ===================================================================================
+
+    private void render(Long visitId) {
+        try {
+            // Transação curta só para a leitura; o layout do PDF acontece sem conexão presa
+            TechnicalVisit visit = readOnlyTransaction.execute(status ->
+                    technicalVisitRepository.findForPdfById(visitId).orElse(null));
+            if (visit == null || visit.getPdfStatus() != PdfStatus.PENDING) {
+                return; // Excluída ou já processada
+            }
+
+            String fileName = technicalVisitService.writePdf(visit, true);
+
+            Boolean stored = writeTransaction.execute(status -> storeResult(visitId, fileName));
+            if (Boolean.TRUE.equals(stored)) {
+                logger.info("PDF da visita {} gerado: {}", visitId, fileName);
+                notifySubscribers(visitId, PdfStatus.READY);
+            } else {
+                // A visita foi excluída durante a renderização: o arquivo não tem mais dono
+                Files.deleteIfExists(Paths.get(fileStoragePath, fileName));
+            }
+        } catch (Exception e) {
+            logger.error("Falha ao gerar o PDF da visita {}.", visitId, e);
+            fail(visitId);
+        }
+    }
+
+    /**
+     * Gera de novo o PDF de uma visita (re-renderização em lote), na thread de quem chama.
+     * O arquivo novo é gravado antes de trocar o pdfPath; o anterior só é apagado depois.
+     *
+     * @return false se a visita não existe mais ou ainda está na fila assíncrona
+     */
+    public boolean rerender(Long visitId) throws IOException {
+        TechnicalVisit visit = readOnlyTransaction.execute(status ->
+                technicalVisitRepository.findForPdfById(visitId).orElse(null));
+        if (visit == null || visit.getPdfStatus() == PdfStatus.PENDING) {
+            return false; // Excluída ou já será gerada pela fila
+        }
+
+        String previousFileName = visit.getPdfPath();
+        String fileName = technicalVisitService.writePdf(visit, true);
+
+        Boolean stored = writeTransaction.execute(status -> storeResult(visitId, fileName));
+        if (!Boolean.TRUE.equals(stored)) {
+            Files.deleteIfExists(Paths.get(fileStoragePath, fileName));
+            return false;
+        }
+        if (previousFileName != null && !previousFileName.isBlank()) {
+            Files.deleteIfExists(Paths.get(fileStoragePath, previousFileName));
+        }
+        return true;
+    }
+
+    private boolean storeResult(Long visitId, String fileName) {
+        return technicalVisitRepository.findById(visitId)
+                .map(visit -> {
+                    visit.setPdfPath(fileName);
+                    visit.setPdfStatus(PdfStatus.READY);
+                    TechnicalVisit saved = technicalVisitRepository.save(visit);
+                    documentIndexService.indexVisit(saved);
+                    return true;
+                })
+                .orElse(false);
+    }
+
+    private void fail(Long visitId) {
+        try {
+            writeTransaction.executeWithoutResult(status -> updateStatus(visitId, PdfStatus.FAILED));
+        } catch (Exception e) {
+            logger.error("Não foi possível marcar o PDF da visita {} como FAILED.", visitId, e);
+        }
+        notifySubscribers(visitId, PdfStatus.FAILED);
+    }
+
+    private void updateStatus(Long visitId, PdfStatus pdfStatus) {
+        technicalVisitRepository.findById(visitId).ifPresent(visit -> {
+            visit.setPdfStatus(pdfStatus);
+            technicalVisitRepository.save(visit);
+        });
+    }
+
+    // ===================================================================================
+    // 3. ACOMPANHAMENTO (STATUS E SSE)
+    // ===================================================================================
+
+    public VisitPdfStatusDTO getStatus(Long visitId, User currentUser) {
+        TechnicalVisit visit = findAuthorized(visitId, currentUser);
+        return toStatus(visitId, effectiveStatus(visit));
+    }
+
+    /**
+     * Abre um canal SSE que recebe um único evento "pdf-status" quando o PDF fica pronto ou falha.
+     * Se a geração já terminou, o evento é enviado na hora.
+     */
+    public SseEmitter subscribe(Long visitId, User currentUser) {
+        TechnicalVisit visit = findAuthorized(visitId, currentUser);
+        SseEmitter emitter = new SseEmitter(SSE_TIMEOUT_MS);
+
+        if (effectiveStatus(visit) != PdfStatus.PENDING) {
+            send(emitter, toStatus(visitId, effectiveStatus(visit)));
+            return emitter;
+        }
+
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(visitId, id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable unsubscribe = () -> emitters.remove(emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        // A renderização pode ter terminado entre a leitura acima e o registro
+        PdfStatus current = technicalVisitRepository.findById(visitId)
+                .map(this::effectiveStatus)
+                .orElse(PdfStatus.FAILED);
+        if (current != PdfStatus.PENDING) {
+            emitters.remove(emitter);
+            send(emitter, toStatus(visitId, current));
+        }
+        return emitter;
+    }
+
+    private void notifySubscribers(Long visitId, PdfStatus status) {
+        List<SseEmitter> emitters = subscribers.remove(visitId);
+        if (emitters == null) return;
+        VisitPdfStatusDTO dto = toStatus(visitId, status);
+        emitters.forEach(emitter -> send(emitter, dto));
+    }
+
+    private void send(SseEmitter emitter, VisitPdfStatusDTO dto) {
+        try {
+            emitter.send(SseEmitter.event().name("pdf-status").data(dto));
+            emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            // Cliente desconectou; ele pode consultar o status depois
+            emitter.completeWithError(e);
+        }
+    }
+
+    // ===================================================================================
+    // 4. HELPERS
+    // ===================================================================================
+
+    private TechnicalVisit findAuthorized(Long visitId, User currentUser) {
+        TechnicalVisit visit = technicalVisitRepository.findById(visitId)
+                .orElseThrow(() -> new RuntimeException("Relatório de Visita com ID " + visitId + " não encontrado."));
+
+        boolean isOwner = visit.getTechnician().getId().equals(currentUser.getId());
+        if (!isOwner && currentUser.getRole() != UserRole.ADMIN) {
+            throw new SecurityException("Usuário não autorizado a acessar este relatório de visita.");
+        }
+        return visit;
+    }
+
+    /**
+     * Visitas anteriores ao modo assíncrono não têm status: com PDF gravado, estão prontas.
+     */
+    private PdfStatus effectiveStatus(TechnicalVisit visit) {
+        if (visit.getPdfStatus() != null) return visit.getPdfStatus();
+        return visit.getPdfPath() != null ? PdfStatus.READY : PdfStatus.FAILED;
+    }
+
+    private VisitPdfStatusDTO toStatus(Long visitId, PdfStatus status) {
+        String downloadUrl = status == PdfStatus.READY ? "/documents/visit/" + visitId + "/pdf" : null;
+        return new VisitPdfStatusDTO(visitId, status, downloadUrl);
+    }
+}
@@ -0,0 +1,58 @@
+package com.gotree.API.utils;
+
+import com.gotree.API.entities.DocumentIndex;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.exceptions.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posição de um documento na listagem ordenada (data desc com as datas nulas por último, tipo asc, ID desc),
+ * usada na paginação por cursor (keyset) de /documents.
+ * O front recebe apenas o token opaco gerado por {@link #encode()} e o devolve no parâmetro "after".
+ *
+ * @param creationDate Data de referência do último documento da página (pode ser nula)
+ * @param documentType Tipo do último documento da página
+ * @param documentId   ID do último documento na tabela de origem
+ */
+public record DocumentCursor(LocalDate creationDate, DocumentType documentType, Long documentId) {
+
+    private static final String SEPARATOR = "|";
+
+    public static DocumentCursor of(DocumentIndex entry) {
+        return new DocumentCursor(entry.getCreationDate(), entry.getDocumentType(), entry.getDocumentId());
+    }
+
+    /**
+     * Gera o token opaco (Base64 URL-safe, sem padding) enviado ao front.
+     */
+    public String encode() {
+        String raw = (creationDate != null ? creationDate.toString() : "")
+                + SEPARATOR + documentType.name()
+                + SEPARATOR + documentId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Lê o token recebido no parâmetro "after".
+     *
+     * @return o cursor decodificado, ou null se o token estiver vazio (primeira página)
+     * @throws InvalidCursorException se o token for inválido
+     */
+    public static DocumentCursor decode(String token) {
+        if (token == null || token.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) throw new InvalidCursorException("Cursor de paginação inválido.");
+
+            LocalDate date = parts[0].isEmpty() ? null : LocalDate.parse(parts[0]);
+            return new DocumentCursor(date, DocumentType.valueOf(parts[1]), Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new InvalidCursorException("Cursor de paginação inválido.");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.gotree.API.utils;
+
+import com.gotree.API.dto.document.FileDownloadDTO;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Monta a resposta HTTP dos downloads de PDF a partir do arquivo em disco.
+ *
+ * - ETag/Last-Modified: o cliente revalida com If-None-Match/If-Modified-Since e recebe 304
+ *   quando o documento não mudou (os PDFs nunca são reescritos no lugar: cada versão é um arquivo novo).
+ * - Range: o Spring responde 206 com apenas o trecho pedido, o que permite retomar downloads.
+ * - Download completo: com suporte do Tomcat, o arquivo vai pelo sendfile (FileChannel.transferTo),
+ *   sem passar pela memória da JVM; caso contrário, é copiado em blocos pelo FileSystemResource.
+ */
+public final class PdfDownloadResponses {
+
+    // Atributos do Tomcat para envio do arquivo pelo sendfile
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private PdfDownloadResponses() {
+    }
+
+    public static ResponseEntity<Resource> of(FileDownloadDTO file, HttpServletRequest request,
+                                              HttpServletResponse response) throws IOException {
+        Path path = file.getPath();
+        long size = Files.size(path);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        String eTag = eTag(path, size, lastModified);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getFilename() + "\"");
+        headers.setContentType(MediaType.APPLICATION_PDF);
+        headers.setETag(eTag);
+        headers.setLastModified(lastModified);
+        headers.setCacheControl(CacheControl.noCache().cachePrivate());
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        // 1. Documento inalterado: 304 sem corpo
+        if (new ServletWebRequest(request, response).checkNotModified(eTag, lastModified)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).headers(headers).build();
+        }
+
+        // 2. Download completo com sendfile: o Tomcat escreve o arquivo depois da resposta
+        boolean rangeRequest = request.getHeader(HttpHeaders.RANGE) != null;
+        if (!rangeRequest && "GET".equals(request.getMethod())
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, path.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, 0L);
+            request.setAttribute(SENDFILE_END, size);
+            headers.setContentLength(size);
+            return ResponseEntity.ok().headers(headers).build();
+        }
+
+        // 3. Range (206) ou servidor sem sendfile: o Spring recorta e copia o arquivo em blocos
+        return ResponseEntity.ok().headers(headers).body(new FileSystemResource(path));
+    }
+
+    /**
+     * ETag forte a partir do nome, tamanho e data do arquivo (sem ler o conteúdo).
+     */
+    private static String eTag(Path path, long size, long lastModified) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(".pdf")) name = name.substring(0, name.length() - 4);
+        return "\"" + name + "-" + Long.toHexString(size) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+}
@@ -8,6 +8,12 @@ import java.util.Optional;
 
 public class RiskCatalog {
 
+    /**
+     * Versão do catálogo. Entra no digest dos PDFs de checklist (cache de PDFs):
+     * incremente ao alterar textos, tipos ou códigos da lista abaixo.
+     */
+    public static final int VERSION = 1;
+
     @Data
     @AllArgsConstructor
     public static class RiskItem {
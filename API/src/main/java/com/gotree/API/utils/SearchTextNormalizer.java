@@ -0,0 +1,43 @@
+package com.gotree.API.utils;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Normaliza textos para a busca de documentos: remove acentos, converte para minúsculas
+ * e junta os espaços. O mesmo tratamento é aplicado ao texto indexado e ao termo buscado,
+ * o que torna a busca insensível a acentos sem depender da extensão unaccent do Postgres.
+ */
+public final class SearchTextNormalizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private SearchTextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isBlank()) return "";
+        String withoutAccents = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(withoutAccents.toLowerCase()).replaceAll(" ").trim();
+    }
+
+    /**
+     * Junta e normaliza vários trechos (título, resumo, descrições...) ignorando os vazios.
+     */
+    public static String join(Collection<String> parts) {
+        return parts.stream()
+                .filter(Objects::nonNull)
+                .map(SearchTextNormalizer::normalize)
+                .filter(part -> !part.isEmpty())
+                .collect(Collectors.joining(" "));
+    }
+
+    public static String join(String... parts) {
+        return join(Arrays.asList(parts));
+    }
+}
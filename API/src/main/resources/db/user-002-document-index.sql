@@ -0,0 +1,30 @@
+-- Índice unificado de documentos (DocumentIndex), mantido na escrita pelos serviços de documento.
+-- Produção usa spring.jpa.hibernate.ddl-auto=validate: aplicar antes de subir a versão. Idempotente.
+
+CREATE TABLE IF NOT EXISTS tb_document_index (
+    id              BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    document_type   VARCHAR(16)  NOT NULL,
+    document_id     BIGINT       NOT NULL,
+    title           VARCHAR(255),
+    company_id      BIGINT,
+    company_name    VARCHAR(255),
+    technician_id   BIGINT,
+    technician_name VARCHAR(255),
+    creation_date   DATE,
+    signed          BOOLEAN      NOT NULL,
+    sent_at         TIMESTAMP(6),
+    pdf_path        VARCHAR(255),
+    CONSTRAINT uk_document_index_type_document UNIQUE (document_type, document_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_document_index_technician_date
+    ON tb_document_index (technician_id, creation_date DESC);
+
+CREATE INDEX IF NOT EXISTS idx_document_index_technician_type_date
+    ON tb_document_index (technician_id, document_type, creation_date DESC);
+
+CREATE INDEX IF NOT EXISTS idx_document_index_type_date
+    ON tb_document_index (document_type, creation_date DESC);
+
+-- A tabela nasce vazia: a carga inicial é feita na primeira subida pelo DocumentIndexSeeder
+-- (DocumentIndexService.rebuild), a partir das tabelas de origem.
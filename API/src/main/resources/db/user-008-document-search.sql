@@ -0,0 +1,17 @@
+-- Busca de documentos (texto completo + trigramas) sobre o índice unificado.
+-- Produção usa spring.jpa.hibernate.ddl-auto=validate: aplicar antes de subir a versão.
+-- Idempotente. A extensão pg_trgm exige um usuário com permissão de CREATE no banco;
+-- os índices também são criados pelo SearchIndexInitializer a cada subida (IF NOT EXISTS).
+
+ALTER TABLE tb_document_index ADD COLUMN IF NOT EXISTS search_text TEXT;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_document_index_search_fts ON tb_document_index
+    USING GIN (to_tsvector('portuguese', search_text));
+
+CREATE INDEX IF NOT EXISTS idx_document_index_search_trgm ON tb_document_index
+    USING GIN (search_text gin_trgm_ops);
+
+-- As linhas já existentes ficam com search_text nulo até a reconstrução do índice
+-- (DocumentIndexService.rebuild), que preenche a coluna a partir das tabelas de origem.
@@ -0,0 +1,5 @@
+-- Situação da geração assíncrona do PDF da visita técnica (PENDING / READY / FAILED).
+-- Produção usa spring.jpa.hibernate.ddl-auto=validate: aplicar antes de subir a versão. Idempotente.
+-- A coluna fica nula nas visitas existentes: nulo indica visita antiga, gerada de forma síncrona.
+
+ALTER TABLE tb_technical_visit ADD COLUMN IF NOT EXISTS pdf_status VARCHAR(16);
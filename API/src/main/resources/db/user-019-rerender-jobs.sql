@@ -0,0 +1,32 @@
+-- Jobs de re-renderização em lote dos PDFs (RerenderJob / RerenderFailure).
+-- Produção usa spring.jpa.hibernate.ddl-auto=validate: aplicar antes de subir a versão. Idempotente.
+
+CREATE TABLE IF NOT EXISTS tb_rerender_job (
+    id                  BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    status              VARCHAR(16)  NOT NULL,
+    document_type       VARCHAR(16),
+    company_id          BIGINT,
+    start_date          DATE,
+    end_date            DATE,
+    parallelism         INTEGER      NOT NULL,
+    total_documents     BIGINT       NOT NULL,
+    processed_documents BIGINT       NOT NULL,
+    rendered_documents  BIGINT       NOT NULL,
+    failed_documents    BIGINT       NOT NULL,
+    last_index_id       BIGINT,
+    active_millis       BIGINT       NOT NULL,
+    requested_by        VARCHAR(255),
+    created_at          TIMESTAMP(6),
+    finished_at         TIMESTAMP(6),
+    last_error          VARCHAR(1000)
+);
+
+CREATE TABLE IF NOT EXISTS tb_rerender_job_failure (
+    job_id        BIGINT       NOT NULL REFERENCES tb_rerender_job (id),
+    position      INTEGER      NOT NULL,
+    document_type VARCHAR(16),
+    document_id   BIGINT,
+    message       VARCHAR(500),
+    failed_at     TIMESTAMP(6),
+    PRIMARY KEY (job_id, position)
+);
@@ -0,0 +1,5 @@
+-- Digest do conteúdo impresso no PDF do checklist de riscos (geração sob demanda).
+-- Produção usa spring.jpa.hibernate.ddl-auto=validate: aplicar antes de subir a versão. Idempotente.
+-- Checklists existentes ficam com o digest nulo: o PDF é gerado de novo no primeiro download.
+
+ALTER TABLE tb_occupational_risk_report ADD COLUMN IF NOT EXISTS content_digest VARCHAR(64);
@@ -0,0 +1,44 @@
+package com.gotree.API.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DocumentExportServiceTest {
+
+    @Test
+    void plainValuesAreWrittenAsIs() {
+        assertThat(DocumentExportService.csv("Visita Técnica")).isEqualTo("Visita Técnica");
+        assertThat(DocumentExportService.csv("2025-03-14")).isEqualTo("2025-03-14");
+    }
+
+    @Test
+    void nullAndEmptyBecomeEmptyCells() {
+        assertThat(DocumentExportService.csv(null)).isEmpty();
+        assertThat(DocumentExportService.csv("")).isEmpty();
+    }
+
+    @Test
+    void quotesValuesWithSeparatorsQuotesOrLineBreaks() {
+        assertThat(DocumentExportService.csv("Empresa A, filial B")).isEqualTo("\"Empresa A, filial B\"");
+        assertThat(DocumentExportService.csv("Galpão \"Norte\"")).isEqualTo("\"Galpão \"\"Norte\"\"\"");
+        assertThat(DocumentExportService.csv("linha 1\nlinha 2")).isEqualTo("\"linha 1\nlinha 2\"");
+        assertThat(DocumentExportService.csv("linha 1\r\nlinha 2")).isEqualTo("\"linha 1\r\nlinha 2\"");
+    }
+
+    @Test
+    void neutralizesValuesThatExcelWouldReadAsFormulas() {
+        assertThat(DocumentExportService.csv("=HYPERLINK(\"http://x\")")).isEqualTo("\"'=HYPERLINK(\"\"http://x\"\")\"");
+        assertThat(DocumentExportService.csv("+5511999999999")).isEqualTo("\"'+5511999999999\"");
+        assertThat(DocumentExportService.csv("-2+3")).isEqualTo("\"'-2+3\"");
+        assertThat(DocumentExportService.csv("@SUM(A1:A2)")).isEqualTo("\"'@SUM(A1:A2)\"");
+        assertThat(DocumentExportService.csv("\t=1+1")).isEqualTo("\"'\t=1+1\"");
+        assertThat(DocumentExportService.csv("\r=1+1")).isEqualTo("\"'\r=1+1\"");
+    }
+
+    @Test
+    void formulaCharactersAfterTheFirstPositionAreLeftAlone() {
+        assertThat(DocumentExportService.csv("Setor =A")).isEqualTo("Setor =A");
+        assertThat(DocumentExportService.csv("contato@empresa.com")).isEqualTo("contato@empresa.com");
+    }
+}
@@ -0,0 +1,187 @@
+package com.gotree.API.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FindingPhotoServiceTest {
+
+    private static final int WIDTH = 3;
+    private static final int HEIGHT = 2;
+
+    // --- readExifOrientation ---
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void readsOrientationFromBigEndianExif(int orientation) {
+        assertThat(FindingPhotoService.readExifOrientation(jpeg(exif(orientation, false)))).isEqualTo(orientation);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void readsOrientationFromLittleEndianExif(int orientation) {
+        assertThat(FindingPhotoService.readExifOrientation(jpeg(exif(orientation, true)))).isEqualTo(orientation);
+    }
+
+    @Test
+    void skipsSegmentsBeforeTheExifOne() {
+        byte[] jfif = segment(0xE0, "JFIF\0".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(FindingPhotoService.readExifOrientation(jpeg(jfif, exif(6, false)))).isEqualTo(6);
+    }
+
+    @Test
+    void defaultsToNormalWithoutExif() {
+        assertThat(FindingPhotoService.readExifOrientation(jpeg())).isEqualTo(1);
+    }
+
+    @Test
+    void defaultsToNormalForNonJpegData() {
+        byte[] png = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+
+        assertThat(FindingPhotoService.readExifOrientation(png)).isEqualTo(1);
+        assertThat(FindingPhotoService.readExifOrientation(new byte[0])).isEqualTo(1);
+    }
+
+    @Test
+    void defaultsToNormalForTruncatedExif() {
+        byte[] complete = jpeg(exif(6, false));
+
+        // Corta o arquivo em todas as posições dentro do APP1: nunca lê fora do array
+        for (int length = 2; length < complete.length - 2; length++) {
+            byte[] truncated = Arrays.copyOf(complete, length);
+            int orientation = FindingPhotoService.readExifOrientation(truncated);
+            assertThat(orientation).as("cortado em %d bytes", length).isIn(1, 6);
+        }
+        assertThat(FindingPhotoService.readExifOrientation(Arrays.copyOf(complete, 20))).isEqualTo(1);
+    }
+
+    @Test
+    void defaultsToNormalWhenIfdOffsetPointsOutsideTheSegment() {
+        byte[] tiff = tiff(6, false);
+        tiff[4] = 0x7F; // offset do IFD muito além do fim do segmento
+
+        assertThat(FindingPhotoService.readExifOrientation(jpeg(exifSegment(tiff)))).isEqualTo(1);
+    }
+
+    // --- orient ---
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4, 5, 6, 7, 8})
+    void orientsPixelsAccordingToExif(int orientation) {
+        BufferedImage source = numberedImage();
+
+        BufferedImage oriented = FindingPhotoService.orient(source, orientation);
+
+        boolean swap = orientation >= 5;
+        assertThat(oriented.getWidth()).isEqualTo(swap ? HEIGHT : WIDTH);
+        assertThat(oriented.getHeight()).isEqualTo(swap ? WIDTH : HEIGHT);
+
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                int[] target = expectedPosition(orientation, x, y);
+                assertThat(oriented.getRGB(target[0], target[1]) & 0xFFFFFF)
+                        .as("orientação %d, pixel (%d,%d)", orientation, x, y)
+                        .isEqualTo(source.getRGB(x, y) & 0xFFFFFF);
+            }
+        }
+    }
+
+    @Test
+    void leavesImageUntouchedForUnknownOrientation() {
+        BufferedImage source = numberedImage();
+
+        assertThat(FindingPhotoService.orient(source, 0)).isSameAs(source);
+        assertThat(FindingPhotoService.orient(source, 9)).isSameAs(source);
+    }
+
+    // Posição de destino do pixel (x, y) para cada orientação EXIF
+    private static int[] expectedPosition(int orientation, int x, int y) {
+        int w = WIDTH;
+        int h = HEIGHT;
+        return switch (orientation) {
+            case 2 -> new int[]{w - 1 - x, y};
+            case 3 -> new int[]{w - 1 - x, h - 1 - y};
+            case 4 -> new int[]{x, h - 1 - y};
+            case 5 -> new int[]{y, x};
+            case 6 -> new int[]{h - 1 - y, x};
+            case 7 -> new int[]{h - 1 - y, w - 1 - x};
+            case 8 -> new int[]{y, w - 1 - x};
+            default -> new int[]{x, y};
+        };
+    }
+
+    // Cada pixel com uma cor diferente, para seguir a posição dele depois da orientação
+    private static BufferedImage numberedImage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < WIDTH; x++) {
+            for (int y = 0; y < HEIGHT; y++) {
+                image.setRGB(x, y, (40 * (x + 1)) << 16 | (40 * (y + 1)) << 8 | 0x80);
+            }
+        }
+        return image;
+    }
+
+    // --- Montagem de JPEGs mínimos (só os marcadores lidos pelo parser) ---
+
+    private static byte[] jpeg(byte[]... segments) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(0xFF);
+        out.write(0xD8); // SOI
+        for (byte[] segment : segments) out.writeBytes(segment);
+        out.write(0xFF);
+        out.write(0xDA); // SOS: início dos dados da imagem
+        out.writeBytes(new byte[]{0x00, 0x02});
+        return out.toByteArray();
+    }
+
+    private static byte[] exif(int orientation, boolean littleEndian) {
+        return exifSegment(tiff(orientation, littleEndian));
+    }
+
+    private static byte[] exifSegment(byte[] tiff) {
+        byte[] payload = new byte[6 + tiff.length];
+        System.arraycopy("Exif\0\0".getBytes(StandardCharsets.US_ASCII), 0, payload, 0, 6);
+        System.arraycopy(tiff, 0, payload, 6, tiff.length);
+        return segment(0xE1, payload);
+    }
+
+    private static byte[] segment(int marker, byte[] payload) {
+        int length = payload.length + 2;
+        byte[] segment = new byte[payload.length + 4];
+        segment[0] = (byte) 0xFF;
+        segment[1] = (byte) marker;
+        segment[2] = (byte) (length >> 8);
+        segment[3] = (byte) length;
+        System.arraycopy(payload, 0, segment, 4, payload.length);
+        return segment;
+    }
+
+    // Cabeçalho TIFF + IFD0 com uma única entrada: Orientation (0x0112, SHORT, 1 valor)
+    private static byte[] tiff(int orientation, boolean littleEndian) {
+        byte[] tiff = new byte[8 + 2 + 12 + 4];
+        tiff[0] = tiff[1] = (byte) (littleEndian ? 'I' : 'M');
+        put(tiff, 2, 2, 42, littleEndian);
+        put(tiff, 4, 4, 8, littleEndian);      // offset do IFD0
+        put(tiff, 8, 2, 1, littleEndian);      // quantidade de entradas
+        put(tiff, 10, 2, 0x0112, littleEndian); // tag
+        put(tiff, 12, 2, 3, littleEndian);     // tipo SHORT
+        put(tiff, 14, 4, 1, littleEndian);     // quantidade de valores
+        put(tiff, 18, 2, orientation, littleEndian);
+        return tiff;
+    }
+
+    private static void put(byte[] data, int offset, int size, long value, boolean littleEndian) {
+        for (int i = 0; i < size; i++) {
+            int shift = 8 * (littleEndian ? i : size - 1 - i);
+            data[offset + i] = (byte) (value >> shift);
+        }
+    }
+}
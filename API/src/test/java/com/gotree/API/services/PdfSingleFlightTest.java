@@ -0,0 +1,145 @@
+package com.gotree.API.services;
+
+import com.gotree.API.enums.DocumentType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PdfSingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PdfSingleFlight singleFlight = new PdfSingleFlight(meterRegistry);
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallsForTheSameDocumentShareOneRender() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger renders = new AtomicInteger();
+        Path pdf = Path.of("pdf-cache", "aep-1.pdf");
+
+        Future<Path> first = executor.submit(() -> singleFlight.run(DocumentType.AEP, 1L, () -> {
+            renders.incrementAndGet();
+            rendering.countDown();
+            await(release);
+            return pdf;
+        }));
+        assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<Path> second = executor.submit(() -> singleFlight.run(DocumentType.AEP, 1L, () -> {
+            renders.incrementAndGet();
+            return Path.of("pdf-cache", "outro.pdf");
+        }));
+        waitForCoalesced(DocumentType.AEP, 1);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(pdf);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isEqualTo(pdf);
+        assertThat(renders).hasValue(1);
+    }
+
+    @Test
+    void failureIsPropagatedToEveryWaiter() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        IllegalStateException failure = new IllegalStateException("Erro ao renderizar o PDF.");
+
+        Future<Path> first = executor.submit(() -> singleFlight.run(DocumentType.RISK, 7L, () -> {
+            rendering.countDown();
+            await(release);
+            throw failure;
+        }));
+        assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<Path> second = executor.submit(() -> singleFlight.run(DocumentType.RISK, 7L, () -> {
+            throw new AssertionError("A segunda chamada não deveria renderizar.");
+        }));
+        waitForCoalesced(DocumentType.RISK, 1);
+        release.countDown();
+
+        assertThatThrownBy(() -> first.get(5, TimeUnit.SECONDS)).hasCause(failure);
+        assertThatThrownBy(() -> second.get(5, TimeUnit.SECONDS)).hasCause(failure);
+    }
+
+    @Test
+    void finishedRenderIsNotReused() {
+        AtomicInteger renders = new AtomicInteger();
+
+        singleFlight.run(DocumentType.AEP, 1L, () -> Path.of("pdf-cache", "v" + renders.incrementAndGet() + ".pdf"));
+        Path second = singleFlight.run(DocumentType.AEP, 1L,
+                () -> Path.of("pdf-cache", "v" + renders.incrementAndGet() + ".pdf"));
+
+        assertThat(second).isEqualTo(Path.of("pdf-cache", "v2.pdf"));
+        assertThat(coalesced(DocumentType.AEP)).isZero();
+    }
+
+    @Test
+    void failedRenderIsNotReused() {
+        assertThatThrownBy(() -> singleFlight.run(DocumentType.AEP, 1L, () -> {
+            throw new IllegalStateException("falhou");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(singleFlight.run(DocumentType.AEP, 1L, () -> Path.of("pdf-cache", "aep-1.pdf")))
+                .isEqualTo(Path.of("pdf-cache", "aep-1.pdf"));
+    }
+
+    @Test
+    void differentDocumentsRenderIndependently() throws Exception {
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Path> first = executor.submit(() -> singleFlight.run(DocumentType.AEP, 1L, () -> {
+            rendering.countDown();
+            await(release);
+            return Path.of("pdf-cache", "aep-1.pdf");
+        }));
+        assertThat(rendering.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // Mesmo ID em outro tipo de documento e outro ID do mesmo tipo não esperam a geração em andamento
+        assertThat(singleFlight.run(DocumentType.RISK, 1L, () -> Path.of("pdf-cache", "risk-1.pdf")))
+                .isEqualTo(Path.of("pdf-cache", "risk-1.pdf"));
+        assertThat(singleFlight.run(DocumentType.AEP, 2L, () -> Path.of("pdf-cache", "aep-2.pdf")))
+                .isEqualTo(Path.of("pdf-cache", "aep-2.pdf"));
+
+        release.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isEqualTo(Path.of("pdf-cache", "aep-1.pdf"));
+        assertThat(coalesced(DocumentType.AEP) + coalesced(DocumentType.RISK)).isZero();
+    }
+
+    private double coalesced(DocumentType type) {
+        return meterRegistry.get("pdf.render.coalesced").tag("type", type.getCode()).counter().count();
+    }
+
+    // O contador é incrementado antes da espera: quando ele muda, a segunda chamada já aguarda a primeira
+    private void waitForCoalesced(DocumentType type, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (coalesced(type) < expected) {
+            if (System.nanoTime() > deadline) throw new AssertionError("A chamada não aguardou a geração em andamento.");
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
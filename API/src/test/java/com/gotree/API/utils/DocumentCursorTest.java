@@ -0,0 +1,86 @@
+package com.gotree.API.utils;
+
+import com.gotree.API.entities.DocumentIndex;
+import com.gotree.API.enums.DocumentType;
+import com.gotree.API.exceptions.InvalidCursorException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DocumentCursorTest {
+
+    @Test
+    void roundTripWithDate() {
+        DocumentCursor cursor = new DocumentCursor(LocalDate.of(2025, 3, 14), DocumentType.AEP, 42L);
+
+        assertThat(DocumentCursor.decode(cursor.encode())).isEqualTo(cursor);
+    }
+
+    @Test
+    void roundTripWithoutDate() {
+        DocumentCursor cursor = new DocumentCursor(null, DocumentType.RISK, 7L);
+
+        DocumentCursor decoded = DocumentCursor.decode(cursor.encode());
+
+        assertThat(decoded).isEqualTo(cursor);
+        assertThat(decoded.creationDate()).isNull();
+    }
+
+    @Test
+    void ofCopiesThePositionOfTheIndexEntry() {
+        DocumentIndex entry = new DocumentIndex();
+        entry.setCreationDate(LocalDate.of(2024, 12, 31));
+        entry.setDocumentType(DocumentType.VISIT);
+        entry.setDocumentId(1001L);
+
+        assertThat(DocumentCursor.of(entry))
+                .isEqualTo(new DocumentCursor(LocalDate.of(2024, 12, 31), DocumentType.VISIT, 1001L));
+    }
+
+    @Test
+    void tokenIsUrlSafeWithoutPadding() {
+        String token = new DocumentCursor(LocalDate.of(2025, 1, 1), DocumentType.VISIT, 123456789L).encode();
+
+        assertThat(token).doesNotContain("+", "/", "=");
+    }
+
+    @Test
+    void emptyTokenMeansFirstPage() {
+        assertThat(DocumentCursor.decode(null)).isNull();
+        assertThat(DocumentCursor.decode("")).isNull();
+        assertThat(DocumentCursor.decode("   ")).isNull();
+    }
+
+    @Test
+    void rejectsTokenThatIsNotBase64() {
+        assertThatThrownBy(() -> DocumentCursor.decode("não é base64!"))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void rejectsTokenWithWrongNumberOfParts() {
+        assertThatThrownBy(() -> DocumentCursor.decode(token("2025-01-01|VISIT")))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> DocumentCursor.decode(token("2025-01-01|VISIT|1|extra")))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    @Test
+    void rejectsTamperedFields() {
+        assertThatThrownBy(() -> DocumentCursor.decode(token("2025-13-45|VISIT|1")))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> DocumentCursor.decode(token("2025-01-01|INVOICE|1")))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> DocumentCursor.decode(token("2025-01-01|VISIT|1 OR 1=1")))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+
+    private static String token(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
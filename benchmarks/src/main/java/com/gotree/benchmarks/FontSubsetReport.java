@@ -0,0 +1,60 @@
+package com.gotree.benchmarks;
+
+import com.gotree.API.services.ReportService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Relatório de tamanho dos PDFs com a Montserrat inteira (antes) e em subconjunto (depois),
+ * para os três templates e os três tamanhos das fixtures. Não é um benchmark JMH: o tamanho é
+ * determinístico, então basta gerar cada PDF uma vez.
+ *
+ * Uso: java -cp benchmarks/target/benchmarks.jar com.gotree.benchmarks.FontSubsetReport
+ */
+public final class FontSubsetReport {
+
+    private static final List<String> TEMPLATES =
+            List.of("visit-report-template", "aep-template", "risk-checklist-template");
+
+    private FontSubsetReport() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        ReportService fullFont = RenderFixtures.reportService(RenderFixtures.rendererFactory(false));
+        ReportService subsetFont = RenderFixtures.reportService(RenderFixtures.rendererFactory(true));
+        Path photoDir = Files.createTempDirectory("font-subset-report-photos");
+
+        try {
+            System.out.printf("%-26s %-8s %14s %14s %10s%n", "template", "size", "fonte inteira", "subconjunto", "redução");
+            for (String template : TEMPLATES) {
+                for (RenderFixtures.Size size : RenderFixtures.Size.values()) {
+                    long before = pdfSize(fullFont, template, size, photoDir);
+                    long after = pdfSize(subsetFont, template, size, photoDir);
+                    System.out.printf("%-26s %-8s %14s %14s %9.1f%%%n", template, size,
+                            kib(before), kib(after), 100.0 * (before - after) / before);
+                }
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(photoDir)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private static long pdfSize(ReportService reportService, String template, RenderFixtures.Size size, Path photoDir) {
+        ReportRenderingBenchmark.CountingOutputStream out = new ReportRenderingBenchmark.CountingOutputStream();
+        reportService.renderPdf(template, RenderFixtures.templateData(template, size, photoDir), out);
+        return out.count;
+    }
+
+    private static String kib(long bytes) {
+        return String.format("%,.1f KiB", bytes / 1024.0);
+    }
+}
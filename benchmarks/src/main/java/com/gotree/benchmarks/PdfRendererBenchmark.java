@@ -0,0 +1,111 @@
+package com.gotree.benchmarks;
+
+import com.gotree.API.services.PdfRendererFactory;
+import com.gotree.API.services.SystemInfoCache;
+import com.lowagie.text.pdf.BaseFont;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Renderizador antigo x atual, com o mesmo HTML já processado pelo Thymeleaf.
+ *
+ * - legacy: como o ReportService fazia antes da PdfRendererFactory — ITextRenderer novo com
+ *   addFont da Montserrat (lê e analisa o TTF a cada PDF) e o UserAgent padrão (decodifica
+ *   todas as imagens a cada PDF).
+ * - factory: PdfRendererFactory, com a fonte analisada uma vez (cache do iText), o cache de imagens
+ *   e a logo já decodificada pelo SystemInfoCache, como no ReportService.
+ *
+ * Usa os documentos pequenos, onde o custo fixo por PDF pesa mais. Rode com "-prof gc" para
+ * comparar a alocação por PDF.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class PdfRendererBenchmark {
+
+    private static final String FONT_RESOURCE = "/fonts/Montserrat.ttf";
+
+    @Param({"visit-report-template", "aep-template", "risk-checklist-template"})
+    public String template;
+
+    private Path photoDir;
+    private PdfRendererFactory rendererFactory;
+    private SystemInfoCache.Snapshot info;
+    private String html;
+    private String fontUrl;
+    private final String baseUri = new File(".").toURI().toString();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        photoDir = Files.createTempDirectory("renderer-benchmark-photos");
+        rendererFactory = RenderFixtures.rendererFactory();
+
+        Map<String, Object> data = RenderFixtures.templateData(template, RenderFixtures.Size.SMALL, photoDir);
+        info = RenderFixtures.systemInfoCache().get();
+        data.put("generatingCompanyName", "Empresa Emissora");
+        data.put("generatingCompanyCnpj", "00.000.000/0001-00");
+        data.put("generatingCompanyLogo", info.logoBase64());
+        Context context = new Context();
+        context.setVariables(data);
+        html = RenderFixtures.templateEngine().process(template, context);
+
+        URL font = PdfRendererFactory.class.getResource(FONT_RESOURCE);
+        if (font == null) throw new IllegalStateException("Fonte não encontrada: " + FONT_RESOURCE);
+        fontUrl = font.toString();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(photoDir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long legacy() throws Exception {
+        ITextRenderer renderer = new ITextRenderer();
+        renderer.getFontResolver().addFont(fontUrl, BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+        return render(renderer);
+    }
+
+    @Benchmark
+    public long factory() throws Exception {
+        return render(rendererFactory.newRenderer(info));
+    }
+
+    private long render(ITextRenderer renderer) throws Exception {
+        ReportRenderingBenchmark.CountingOutputStream out = new ReportRenderingBenchmark.CountingOutputStream();
+        renderer.setDocumentFromString(html, baseUri);
+        renderer.layout();
+        renderer.createPDF(out);
+        return out.count;
+    }
+}
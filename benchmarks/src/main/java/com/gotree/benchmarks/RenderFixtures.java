@@ -0,0 +1,368 @@
+package com.gotree.benchmarks;
+
+import com.gotree.API.entities.AepReport;
+import com.gotree.API.entities.Company;
+import com.gotree.API.entities.OccupationalRiskReport;
+import com.gotree.API.entities.Physiotherapist;
+import com.gotree.API.entities.Sector;
+import com.gotree.API.entities.TechnicalVisit;
+import com.gotree.API.entities.Unit;
+import com.gotree.API.entities.User;
+import com.gotree.API.entities.VisitFinding;
+import com.gotree.API.enums.Shift;
+import com.gotree.API.repositories.SystemInfoRepository;
+import com.gotree.API.services.PdfImageCache;
+import com.gotree.API.services.PdfRenderMetrics;
+import com.gotree.API.services.PdfRendererFactory;
+import com.gotree.API.services.RenderAdmissionService;
+import com.gotree.API.services.ReportService;
+import com.gotree.API.services.SystemInfoCache;
+import com.gotree.API.utils.RiskCatalog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Monta o ReportService sem Spring nem banco e gera os dados sintéticos dos três templates.
+ *
+ * Tudo é determinístico (semente fixa) e local: as fotos dos achados são JPEGs gerados numa pasta
+ * temporária e a empresa emissora cai no fallback da logo estática (repositório sem registro).
+ */
+public final class RenderFixtures {
+
+    /**
+     * Tamanho do documento: achados da visita, funções do checklist e riscos listados na AEP.
+     */
+    public enum Size {
+        SMALL(1), TYPICAL(10), HUGE(100);
+
+        final int items;
+
+        Size(int items) {
+            this.items = items;
+        }
+    }
+
+    private static final int PHOTO_WIDTH = 1600;
+    private static final int PHOTO_HEIGHT = 1200;
+
+    private RenderFixtures() {
+    }
+
+    // ===================================================================================
+    // 1. SERVIÇOS
+    // ===================================================================================
+
+    /**
+     * ReportService com as mesmas peças da aplicação (fábrica de renderizadores, cache de imagens,
+     * métricas e admissão), mas sem limite prático de concorrência nem log de renderização lenta.
+     */
+    public static ReportService reportService(PdfRendererFactory rendererFactory) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new ReportService(templateEngine(), systemInfoCache(), rendererFactory,
+                new RenderAdmissionService(registry, 256, 256, 60_000, 1),
+                new PdfRenderMetrics(registry, Long.MAX_VALUE));
+    }
+
+    public static PdfRendererFactory rendererFactory() {
+        return rendererFactory(true);
+    }
+
+    /**
+     * @param subsetFonts false embute a Montserrat inteira (comparação de tamanho no FontSubsetReport)
+     */
+    public static PdfRendererFactory rendererFactory(boolean subsetFonts) {
+        return new PdfRendererFactory(new PdfImageCache(new SimpleMeterRegistry(), 64L * 1024 * 1024), subsetFonts);
+    }
+
+    /**
+     * Mesma resolução de templates do Spring Boot (classpath:/templates/*.html, SpEL).
+     */
+    public static SpringTemplateEngine templateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding("UTF-8");
+        resolver.setCacheable(true);
+
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        return engine;
+    }
+
+    /**
+     * Repositório sem registro: o SystemInfoCache usa a logo estática, como numa instalação nova.
+     */
+    public static SystemInfoCache systemInfoCache() {
+        return new SystemInfoCache(emptySystemInfoRepository());
+    }
+
+    private static SystemInfoRepository emptySystemInfoRepository() {
+        return (SystemInfoRepository) Proxy.newProxyInstance(SystemInfoRepository.class.getClassLoader(),
+                new Class<?>[]{SystemInfoRepository.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "findFirst" -> null;
+                    case "toString" -> "SystemInfoRepository (benchmark)";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    // ===================================================================================
+    // 2. DADOS DOS TEMPLATES
+    // ===================================================================================
+
+    /**
+     * Dados do template indicado, no mesmo formato montado pelos serviços da aplicação.
+     *
+     * @param photoDir Pasta onde as fotos dos achados são geradas (só usada pela visita)
+     */
+    public static Map<String, Object> templateData(String templateName, Size size, Path photoDir) {
+        return switch (templateName) {
+            case "visit-report-template" -> visitData(size, photoDir);
+            case "aep-template" -> aepData(size);
+            case "risk-checklist-template" -> riskData(size);
+            default -> throw new IllegalArgumentException("Template desconhecido: " + templateName);
+        };
+    }
+
+    private static Map<String, Object> visitData(Size size, Path photoDir) {
+        Random random = new Random(42);
+        TechnicalVisit visit = new TechnicalVisit();
+        visit.setId(1L);
+        visit.setTitle("Visita técnica");
+        visit.setClientCompany(company());
+        visit.setTechnician(technician());
+        visit.setUnit(unit());
+        visit.setSector(sector());
+        visit.setVisitDate(LocalDate.of(2025, 3, 10));
+        visit.setStartTime(LocalTime.of(8, 30));
+        visit.setEndTime(LocalTime.of(11, 45));
+        visit.setLocation("Galpão de expedição");
+        visit.setSummary(text(random, 120));
+        visit.setNextVisitDate(LocalDate.of(2025, 4, 10));
+        visit.setNextVisitShift(Shift.MANHA);
+        visit.setTechnicianSignatureImageBase64(signature());
+        visit.setTechnicianSignedAt(LocalDateTime.of(2025, 3, 10, 11, 50));
+        visit.setClientSignerName("Responsável do Cliente");
+        visit.setClientSignatureImageBase64(signature());
+        visit.setClientSignedAt(LocalDateTime.of(2025, 3, 10, 11, 55));
+        visit.setClientSignatureLatitude(-23.5505);
+        visit.setClientSignatureLongitude(-46.6333);
+
+        VisitFinding.Priority[] priorities = VisitFinding.Priority.values();
+        for (int i = 0; i < size.items; i++) {
+            VisitFinding finding = new VisitFinding();
+            finding.setTechnicalVisit(visit);
+            finding.setDescription(text(random, 60));
+            finding.setConsequences(text(random, 40));
+            finding.setLegalGuidance(text(random, 40));
+            finding.setPenalties(text(random, 20));
+            finding.setResponsible("Encarregado " + (i + 1));
+            finding.setPriority(priorities[i % priorities.length]);
+            finding.setDeadline(LocalDate.of(2025, 4, 1).plusDays(i));
+            finding.setRecurrence(i % 3 == 0);
+            // Uma foto por achado e uma segunda nos achados pares (fotos distintas, como nas visitas reais)
+            finding.setPhotoPath1(photo(photoDir, "finding_" + i + "_1.jpg"));
+            if (i % 2 == 0) finding.setPhotoPath2(photo(photoDir, "finding_" + i + "_2.jpg"));
+            visit.getFindings().add(finding);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("visit", visit);
+        data.put(ReportService.DOCUMENT_ID, visit.getId());
+        return data;
+    }
+
+    private static Map<String, Object> aepData(Size size) {
+        Random random = new Random(42);
+        AepReport aep = new AepReport();
+        aep.setId(1L);
+        aep.setCompany(company());
+        aep.setEvaluator(technician());
+        aep.setEvaluationDate(LocalDate.of(2025, 3, 10));
+        aep.setEvaluatedFunction("Operador de empilhadeira");
+        Physiotherapist physiotherapist = new Physiotherapist();
+        physiotherapist.setName("Fisioterapeuta Responsável");
+        physiotherapist.setCrefito("123456-F");
+        aep.setPhysiotherapist(physiotherapist);
+
+        // A lista mestre real tem algumas dezenas de riscos; aqui ela cresce com o tamanho (10x)
+        List<String> allRisks = IntStream.range(0, size.items * 10)
+                .mapToObj(i -> "Risco ergonômico " + (i + 1) + ": " + text(random, 12))
+                .toList();
+        aep.setSelectedRisks(IntStream.range(0, allRisks.size()).filter(i -> i % 2 == 0)
+                .mapToObj(allRisks::get).toList());
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("aep", aep);
+        data.put(ReportService.DOCUMENT_ID, aep.getId());
+        data.put("company", aep.getCompany());
+        data.put("evaluator", aep.getEvaluator());
+        data.put("allRisks", allRisks);
+        data.put("selectedRisks", aep.getSelectedRisks());
+        return data;
+    }
+
+    private static Map<String, Object> riskData(Size size) {
+        OccupationalRiskReport report = new OccupationalRiskReport();
+        report.setId(1L);
+        report.setInspectionDate(LocalDate.of(2025, 3, 10));
+        report.setCompany(company());
+        report.setUnit(unit());
+        report.setSector(sector());
+        report.setTechnician(technician());
+        report.setTechnicianSignatureImageBase64(signature());
+        report.setTechnicianSignedAt(LocalDateTime.of(2025, 3, 10, 11, 50));
+
+        // Cada função com uma fatia diferente do catálogo (entre 3 e 10 riscos)
+        List<RiskCatalog.RiskItem> catalog = RiskCatalog.ALL_RISKS;
+        List<Map<String, Object>> functionsData = new ArrayList<>();
+        for (int i = 0; i < size.items; i++) {
+            int count = 3 + i % 8;
+            List<RiskCatalog.RiskItem> risks = new ArrayList<>();
+            for (int r = 0; r < count; r++) {
+                risks.add(catalog.get((i * 7 + r) % catalog.size()));
+            }
+            Map<String, Object> funcMap = new HashMap<>();
+            funcMap.put("name", "Função " + (i + 1));
+            funcMap.put("risks", risks);
+            functionsData.add(funcMap);
+        }
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("report", report);
+        data.put(ReportService.DOCUMENT_ID, report.getId());
+        data.put("functionsData", functionsData);
+        return data;
+    }
+
+    // ===================================================================================
+    // 3. HELPERS
+    // ===================================================================================
+
+    private static Company company() {
+        Company company = new Company();
+        company.setId(1L);
+        company.setName("Empresa Cliente Exemplo LTDA");
+        company.setCnpj("12.345.678/0001-90");
+        return company;
+    }
+
+    private static Unit unit() {
+        Unit unit = new Unit();
+        unit.setId(1L);
+        unit.setName("Unidade Centro");
+        return unit;
+    }
+
+    private static Sector sector() {
+        Sector sector = new Sector();
+        sector.setId(1L);
+        sector.setName("Logística");
+        return sector;
+    }
+
+    private static User technician() {
+        User user = new User();
+        user.setId(1L);
+        user.setName("Técnico de Segurança");
+        user.setConselhoClasse("123456");
+        user.setSiglaConselhoClasse("MTE");
+        user.setEspecialidade("Técnico em Segurança do Trabalho");
+        return user;
+    }
+
+    private static final String[] WORDS = {"risco", "trabalho", "equipamento", "proteção", "norma",
+            "setor", "empregado", "inspeção", "medida", "controle", "exposição", "treinamento"};
+
+    private static String text(Random random, int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Assinatura sintética (PNG pequeno em Base64, como as enviadas pelo app).
+     */
+    private static String signature() {
+        BufferedImage image = new BufferedImage(400, 120, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setColor(Color.BLACK);
+            for (int x = 10; x < 390; x += 6) {
+                g.drawLine(x, 60 + (int) (30 * Math.sin(x / 15.0)), x + 6, 60 + (int) (30 * Math.sin((x + 6) / 15.0)));
+            }
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(image, "png", out);
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    /**
+     * Gera (uma vez) um JPEG no tamanho em que as fotos ficam depois do upload (maior lado 1600).
+     * O ruído evita que o JPEG comprima de forma irreal.
+     */
+    private static String photo(Path dir, String fileName) {
+        Path path = dir.resolve(fileName);
+        if (!Files.exists(path)) {
+            Random random = new Random(fileName.hashCode());
+            BufferedImage image = new BufferedImage(PHOTO_WIDTH, PHOTO_HEIGHT, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = image.createGraphics();
+            try {
+                g.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xFFFFFF)),
+                        PHOTO_WIDTH, PHOTO_HEIGHT, new Color(random.nextInt(0xFFFFFF))));
+                g.fillRect(0, 0, PHOTO_WIDTH, PHOTO_HEIGHT);
+            } finally {
+                g.dispose();
+            }
+            for (int i = 0; i < PHOTO_WIDTH * PHOTO_HEIGHT / 8; i++) {
+                image.setRGB(random.nextInt(PHOTO_WIDTH), random.nextInt(PHOTO_HEIGHT), random.nextInt(0xFFFFFF));
+            }
+            try (OutputStream out = Files.newOutputStream(path)) {
+                write(image, "jpg", out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return path.toAbsolutePath().toString().replace("\\", "/");
+    }
+
+    private static void write(BufferedImage image, String format, OutputStream out) {
+        try {
+            ImageIO.write(image, format, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.gotree.benchmarks;
+
+import com.gotree.API.services.ReportService;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Geração completa de PDF pelo ReportService (Thymeleaf + Flying Saucer) para os três templates.
+ *
+ * Reporta PDFs por minuto e, como contador auxiliar, o tamanho do PDF gerado (outputBytes).
+ * Rode com "-prof gc" para a taxa de alocação (gc.alloc.rate e gc.alloc.rate.norm, bytes por PDF).
+ * O PDF vai para um stream que só conta os bytes: o disco não entra na medição.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MINUTES)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g", "-Djava.awt.headless=true"})
+@State(Scope.Benchmark)
+public class ReportRenderingBenchmark {
+
+    @Param({"visit-report-template", "aep-template", "risk-checklist-template"})
+    public String template;
+
+    @Param({"SMALL", "TYPICAL", "HUGE"})
+    public RenderFixtures.Size size;
+
+    private Path photoDir;
+    private ReportService reportService;
+    private Map<String, Object> data;
+
+    /**
+     * Tamanho do último PDF gerado. Como o benchmark roda em uma thread e o valor é atribuído
+     * (não somado), o JMH reporta exatamente o tamanho do documento.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Output {
+        public long outputBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            outputBytes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        photoDir = Files.createTempDirectory("report-benchmark-photos");
+        reportService = RenderFixtures.reportService(RenderFixtures.rendererFactory());
+        data = RenderFixtures.templateData(template, size, photoDir);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(photoDir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long render(Output output) {
+        CountingOutputStream out = new CountingOutputStream();
+        reportService.renderPdf(template, data, out);
+        output.outputBytes = out.count;
+        return out.count;
+    }
+
+    /**
+     * Descarta o PDF, contando apenas os bytes escritos.
+     */
+    static final class CountingOutputStream extends OutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}